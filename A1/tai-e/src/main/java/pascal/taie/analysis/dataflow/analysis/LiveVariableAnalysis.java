@@ -22,6 +22,7 @@
 
 package pascal.taie.analysis.dataflow.analysis;
 
+import pascal.taie.analysis.dataflow.fact.BitSetFact;
 import pascal.taie.analysis.dataflow.fact.SetFact;
 import pascal.taie.analysis.graph.cfg.CFG;
 import pascal.taie.config.AnalysisConfig;
@@ -36,8 +37,15 @@ public class LiveVariableAnalysis extends
 
     public static final String ID = "livevar";
 
+    /**
+     * Whether to represent facts as dense bit vectors over the variables
+     * of the analyzed method, see {@link BitSetFact}.
+     */
+    private final boolean bitSet;
+
     public LiveVariableAnalysis(AnalysisConfig config) {
         super(config);
+        bitSet = getOptions().getBooleanOrDefault("bitset", false);
     }
 
     @Override
@@ -47,24 +55,41 @@ public class LiveVariableAnalysis extends
 
     @Override
     public SetFact<Var> newBoundaryFact(CFG<Stmt> cfg) {
-        // TODO - finish me
-        return null;
+        return newInitialFact(cfg);
     }
 
     @Override
     public SetFact<Var> newInitialFact() {
-        // TODO - finish me
-        return null;
+        return new SetFact<>();
+    }
+
+    @Override
+    public SetFact<Var> newInitialFact(CFG<Stmt> cfg) {
+        return bitSet ? new BitSetFact<>(cfg.getIR().getVars()) : newInitialFact();
     }
 
     @Override
     public void meetInto(SetFact<Var> fact, SetFact<Var> target) {
-        // TODO - finish me
+        target.union(fact);
     }
 
     @Override
     public boolean transferNode(Stmt stmt, SetFact<Var> in, SetFact<Var> out) {
-        // TODO - finish me
+        SetFact<Var> newIn = out.copy();
+        stmt.getDef().ifPresent(def -> {
+            if (def instanceof Var) {
+                newIn.remove((Var) def);
+            }
+        });
+        stmt.getUses().forEach(use -> {
+            if (use instanceof Var) {
+                newIn.add((Var) use);
+            }
+        });
+        if (!newIn.equals(in)) {
+            in.set(newIn);
+            return true;
+        }
         return false;
     }
 }
@@ -27,6 +27,7 @@ import pascal.taie.util.collection.Sets;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.Set;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
@@ -48,6 +49,16 @@ public class SetFact<E> {
         this(Collections.emptySet());
     }
 
+    /**
+     * Constructs a fact backed by given set without copying it. This is
+     * meant for subclasses which keep the elements in storage of their
+     * own and override all public methods of this class; they can pass
+     * an immutable empty set, so that no backing set is allocated.
+     */
+    protected SetFact(Set<E> set) {
+        this.set = set;
+    }
+
     /**
      * @return true if this set contains the specified element, otherwise false.
      */
@@ -89,7 +100,15 @@ public class SetFact<E> {
      * @return true if this fact changed as a result of the call, otherwise false.
      */
     public boolean union(SetFact<E> other) {
-        return set.addAll(other.set);
+        if (other.getClass() == SetFact.class) {
+            return set.addAll(other.set);
+        }
+        // other representations may not keep their elements in other.set
+        boolean changed = false;
+        for (Iterator<E> it = other.stream().iterator(); it.hasNext(); ) {
+            changed |= set.add(it.next());
+        }
+        return changed;
     }
 
     /**
@@ -107,7 +126,10 @@ public class SetFact<E> {
      * @return true if this fact changed as a result of the call, otherwise false.
      */
     public boolean intersect(SetFact<E> other) {
-        return set.retainAll(other.set);
+        if (other.getClass() == SetFact.class) {
+            return set.retainAll(other.set);
+        }
+        return set.removeIf(e -> !other.contains(e));
     }
 
     /**
@@ -131,7 +153,9 @@ public class SetFact<E> {
      * Creates and returns a copy of this fact.
      */
     public SetFact<E> copy() {
-        return new SetFact<>(this.set);
+        SetFact<E> copy = new SetFact<>();
+        copy.set.addAll(set);
+        return copy;
     }
 
     /**
@@ -158,9 +182,10 @@ public class SetFact<E> {
         if (this == o) {
             return true;
         }
-        if (!(o instanceof SetFact<?> that)) {
+        if (o == null || getClass() != o.getClass()) {
             return false;
         }
+        SetFact<?> that = (SetFact<?>) o;
         return set.equals(that.set);
     }
 
@@ -26,10 +26,12 @@ import pascal.taie.analysis.dataflow.analysis.DataflowAnalysis;
 import pascal.taie.analysis.dataflow.fact.DataflowResult;
 import pascal.taie.analysis.graph.cfg.CFG;
 
+import java.util.List;
+
 class IterativeSolver<Node, Fact> extends Solver<Node, Fact> {
 
-    public IterativeSolver(DataflowAnalysis<Node, Fact> analysis) {
-        super(analysis);
+    public IterativeSolver(DataflowAnalysis<Node, Fact> analysis, VisitOrder order) {
+        super(analysis, order);
     }
 
     @Override
@@ -39,6 +41,20 @@ class IterativeSolver<Node, Fact> extends Solver<Node, Fact> {
 
     @Override
     protected void doSolveBackward(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
-        // TODO - finish me
+        List<Node> nodes = order.sort(cfg, false);
+        boolean changed;
+        do {
+            changed = false;
+            for (Node node : nodes) {
+                if (cfg.isExit(node)) {
+                    continue;
+                }
+                Fact out = result.getOutFact(node);
+                for (Node succ : cfg.getSuccsOf(node)) {
+                    analysis.meetInto(result.getInFact(succ), out);
+                }
+                changed |= analysis.transferNode(node, result.getInFact(node), out);
+            }
+        } while (changed);
     }
 }
@@ -37,8 +37,14 @@ public abstract class Solver<Node, Fact> {
 
     protected final DataflowAnalysis<Node, Fact> analysis;
 
-    protected Solver(DataflowAnalysis<Node, Fact> analysis) {
+    /**
+     * The order in which this solver visits CFG nodes.
+     */
+    protected final VisitOrder order;
+
+    protected Solver(DataflowAnalysis<Node, Fact> analysis, VisitOrder order) {
         this.analysis = analysis;
+        this.order = order;
     }
 
     /**
@@ -46,7 +52,16 @@ public abstract class Solver<Node, Fact> {
      */
     public static <Node, Fact> Solver<Node, Fact> makeSolver(
             DataflowAnalysis<Node, Fact> analysis) {
-        return new IterativeSolver<>(analysis);
+        return makeSolver(analysis, VisitOrder.FIFO);
+    }
+
+    /**
+     * Static factory method to create a new solver for given analysis,
+     * which visits CFG nodes in given order.
+     */
+    public static <Node, Fact> Solver<Node, Fact> makeSolver(
+            DataflowAnalysis<Node, Fact> analysis, VisitOrder order) {
+        return new IterativeSolver<>(analysis, order);
     }
 
     /**
@@ -81,7 +96,15 @@ public abstract class Solver<Node, Fact> {
     }
 
     protected void initializeBackward(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
-        // TODO - finish me
+        Node exit = cfg.getExit();
+        result.setInFact(exit, analysis.newBoundaryFact(cfg));
+        result.setOutFact(exit, analysis.newBoundaryFact(cfg));
+        for (Node node : cfg) {
+            if (!cfg.isExit(node)) {
+                result.setInFact(node, analysis.newInitialFact(cfg));
+                result.setOutFact(node, analysis.newInitialFact(cfg));
+            }
+        }
     }
 
     /**
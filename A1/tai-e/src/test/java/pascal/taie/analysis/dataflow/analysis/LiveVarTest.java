@@ -32,6 +32,11 @@ public class LiveVarTest {
                 LiveVariableAnalysis.ID, "strongly:false");
     }
 
+    void testLV(String inputClass, String opts) {
+        Tests.test(inputClass, "src/test/resources/dataflow/livevar",
+                LiveVariableAnalysis.ID, "strongly:false;" + opts);
+    }
+
     @Test
     public void testAssign() {
         testLV("Assign");
@@ -61,4 +66,24 @@ public class LiveVarTest {
     public void Reference() {
         testLV("Reference");
     }
+
+    @Test
+    public void BranchLoopBitSet() {
+        testLV("BranchLoop", "bitset:true");
+    }
+
+    @Test
+    public void ArrayBitSet() {
+        testLV("Array", "bitset:true");
+    }
+
+    @Test
+    public void BranchLoopRPO() {
+        testLV("BranchLoop", "solver-order:rpo");
+    }
+
+    @Test
+    public void FibonacciLIFO() {
+        testLV("Fibonacci", "solver-order:lifo");
+    }
 }
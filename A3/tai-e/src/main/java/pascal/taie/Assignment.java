@@ -22,23 +22,88 @@
 
 package pascal.taie;
 
+import pascal.taie.config.ConfigException;
+import pascal.taie.config.PlanConfig;
+
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Main class for assignments.
  */
 public class Assignment {
 
+    private static final String PLAN_FILE = "plan.yml";
+
+    /**
+     * Option of the analyses in the plan, which gives the number of
+     * threads running the method analyses, see {@link #runInPool}.
+     */
+    private static final String PARALLELISM = "parallelism";
+
     public static void main(String[] args) {
         if (args.length > 0) {
             List<String> argList = new ArrayList<>();
-            Collections.addAll(argList, "-pp", "-p", "plan.yml");
+            Collections.addAll(argList, "-pp", "-p", PLAN_FILE);
             Collections.addAll(argList, args);
-            Main.main(argList.toArray(new String[0]));
+            String[] mainArgs = argList.toArray(new String[0]);
+            int parallelism = readParallelism(new File(PLAN_FILE));
+            if (parallelism > 0) {
+                runInPool(mainArgs, parallelism);
+            } else {
+                Main.main(mainArgs);
+            }
         } else {
             System.out.println("Usage: -cp <CLASS_PATH> -m <CLASS_NAME>");
         }
     }
+
+    /**
+     * Reads option "parallelism" of the analyses in given plan. The option
+     * can be given to any analysis, and all analyses which give it must
+     * agree on its value.
+     *
+     * @return the parallelism, or 0 if no analysis in the plan gives it.
+     * @throws ConfigException if the option is not an integer of at least 1,
+     *                         or analyses give different values
+     */
+    private static int readParallelism(File planFile) {
+        int parallelism = 0;
+        for (PlanConfig config : PlanConfig.readConfigs(planFile)) {
+            Object value = config.getOptions().get(PARALLELISM);
+            if (value == null) {
+                continue;
+            }
+            if (!(value instanceof Integer p) || p < 1) {
+                throw new ConfigException("Invalid " + PARALLELISM + " of "
+                        + config.getId() + ": " + value
+                        + ", expected an integer of at least 1");
+            }
+            if (parallelism != 0 && parallelism != p) {
+                throw new ConfigException("Conflicting " + PARALLELISM
+                        + " in plan: " + parallelism + " and " + p);
+            }
+            parallelism = p;
+        }
+        return parallelism;
+    }
+
+    /**
+     * Runs Tai-e in a dedicated pool of given parallelism.
+     * The analysis manager runs each method analysis over all methods
+     * by a parallel stream, and parallel streams execute in the pool
+     * of their calling thread, so that the method analyses fan out over
+     * the threads of this pool instead of the common pool.
+     */
+    private static void runInPool(String[] args, int parallelism) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.submit(() -> Main.main(args)).join();
+        } finally {
+            pool.shutdown();
+        }
+    }
 }
@@ -25,6 +25,8 @@ package pascal.taie.analysis;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import pascal.taie.World;
+import pascal.taie.analysis.dataflow.fact.FactStore;
+import pascal.taie.analysis.dataflow.solver.MetricsRecorder;
 import pascal.taie.config.AnalysisConfig;
 import pascal.taie.ir.IR;
 import pascal.taie.ir.IRPrinter;
@@ -81,6 +83,9 @@ public class ResultProcessor extends ProgramAnalysis {
 
     @Override
     public Object analyze() {
+        // the analyses whose results are processed have finished,
+        // thus their solver metrics are complete
+        MetricsRecorder.dumpAll();
         // initialization
         switch (action) {
             case "dump" -> setOutput();
@@ -101,6 +106,9 @@ public class ResultProcessor extends ProgramAnalysis {
         if (getOptions().getBoolean("log-mismatches")) {
             mismatches.forEach(logger::info);
         }
+        // the off-heap results have been processed,
+        // thus their stores can be closed and deleted
+        FactStore.closeAll();
         return mismatches;
     }
 
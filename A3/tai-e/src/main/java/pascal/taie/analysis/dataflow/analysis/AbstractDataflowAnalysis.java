@@ -24,28 +24,201 @@ package pascal.taie.analysis.dataflow.analysis;
 
 import pascal.taie.analysis.MethodAnalysis;
 import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.dataflow.fact.FactCodec;
+import pascal.taie.analysis.dataflow.fact.FactInterner;
+import pascal.taie.analysis.dataflow.fact.FactStore;
+import pascal.taie.analysis.dataflow.fact.MappedDataflowResult;
+import pascal.taie.analysis.dataflow.solver.MetricsRecorder;
 import pascal.taie.analysis.dataflow.solver.Solver;
+import pascal.taie.analysis.dataflow.solver.SolverMetrics;
+import pascal.taie.analysis.dataflow.solver.SolverOptions;
 import pascal.taie.analysis.graph.cfg.CFG;
 import pascal.taie.analysis.graph.cfg.CFGBuilder;
 import pascal.taie.analysis.graph.cfg.Edge;
 import pascal.taie.config.AnalysisConfig;
+import pascal.taie.config.ConfigException;
 import pascal.taie.ir.IR;
 
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.function.Function;
+
 public abstract class AbstractDataflowAnalysis<Node, Fact>
         extends MethodAnalysis
         implements DataflowAnalysis<Node, Fact> {
 
+    private final SolverOptions solverOptions;
+
     private final Solver<Node, Fact> solver;
 
+    /**
+     * Whether to share equal facts of the results, see {@link FactInterner}.
+     */
+    private final boolean internFacts;
+
+    /**
+     * Recorder of the solver metrics, or null if metrics are not enabled
+     * by option "metrics", see {@link MetricsRecorder}.
+     */
+    private final MetricsRecorder metricsRecorder;
+
+    /**
+     * Results of the methods with at least this number of CFG nodes are
+     * stored out of the heap (see {@link MappedDataflowResult}),
+     * or -1 if results are always kept on the heap.
+     */
+    private final int offHeapThreshold;
+
+    /**
+     * Store of the off-heap results, created on demand, and re-created
+     * if it has been closed, see {@link FactStore#closeAll()}.
+     */
+    private FactStore factStore;
+
     protected AbstractDataflowAnalysis(AnalysisConfig config) {
         super(config);
-        solver = Solver.makeSolver(this);
+        internFacts = getOptions().getBooleanOrDefault("intern-facts", false);
+        solverOptions = SolverOptions.of(getOptions());
+        if (solverOptions.delta() && !(this instanceof DeltaDataflowAnalysis)) {
+            throw new ConfigException(getId() + " does not support option delta");
+        }
+        if (solverOptions.delta() && solverOptions.basicBlock()) {
+            throw new ConfigException(
+                    "Options delta and basic-block cannot be enabled together");
+        }
+        solver = Solver.makeSolver(this, solverOptions);
+        String metricsFile = getOptions().getString("metrics");
+        metricsRecorder = metricsFile == null ? null : MetricsRecorder.of(
+                metricsFile, getOptions().get("metrics-top") instanceof Integer top
+                        ? top : MetricsRecorder.DEFAULT_TOP);
+        offHeapThreshold = getOptions().get("offheap-threshold") instanceof Integer t
+                ? t : -1;
     }
 
     @Override
     public DataflowResult<Node, Fact> analyze(IR ir) {
         CFG<Node> cfg = ir.getResult(CFGBuilder.ID);
-        return solver.solve(cfg);
+        FactCodec<Fact> codec = getOffHeapCodec(cfg);
+        if (codec != null) {
+            // spill the facts of each component as soon as it is solved,
+            // instead of after the whole CFG is solved on the heap
+            return solve(ir, cfg, s -> {
+                DataflowResult<Node, Fact> result =
+                        new MappedDataflowResult<>(getFactStore(), codec);
+                s.solve(cfg, result);
+                return result;
+            });
+        }
+        return solve(ir, cfg, s -> s.solve(cfg));
+    }
+
+    /**
+     * Re-analyzes given IR incrementally after it has been edited,
+     * reusing the facts of the previous result which are not affected
+     * by the edits, see {@link Solver#solve(CFG, DataflowResult, Collection, Collection)}.
+     * If the analysis keeps facts only at basic blocks, the IR is
+     * analyzed from scratch.
+     *
+     * @param ir           the edited IR
+     * @param previous     the result of this analysis before the edits,
+     *                     which should not be used after this call
+     * @param changedNodes nodes of the CFG whose statements changed
+     * @param changedEdges edges of the CFG which are added by the edits
+     */
+    public DataflowResult<Node, Fact> reanalyze(
+            IR ir, DataflowResult<Node, Fact> previous,
+            Collection<Node> changedNodes, Collection<Edge<Node>> changedEdges) {
+        if (solverOptions.basicBlock()) {
+            return analyze(ir);
+        }
+        CFG<Node> cfg = ir.getResult(CFGBuilder.ID);
+        return solve(ir, cfg, s -> s.solve(cfg, previous, changedNodes, changedEdges));
+    }
+
+    /**
+     * If the concrete analysis needs to perform some initialization on
+     * a CFG before the solver starts, then it can overwrite this method.
+     */
+    protected void initialize(CFG<Node> cfg) {
+    }
+
+    /**
+     * If the concrete analysis needs to perform some finishing work on
+     * a CFG after the solver finishes, then it can overwrite this method.
+     */
+    protected void finish(CFG<Node> cfg) {
+    }
+
+    /**
+     * @return the codec to store the facts of given CFG out of the heap,
+     * or null if this analysis does not support off-heap results.
+     */
+    protected FactCodec<Fact> getFactCodec(CFG<Node> cfg) {
+        return null;
+    }
+
+    /**
+     * @return the codec to store the facts of given CFG out of the heap
+     * as configured by option "offheap-threshold", or null if the facts
+     * are kept on the heap.
+     */
+    private FactCodec<Fact> getOffHeapCodec(CFG<Node> cfg) {
+        // results of basic-block solver are already compact
+        return offHeapThreshold >= 0 && !solverOptions.basicBlock() &&
+                cfg.getNumberOfNodes() >= offHeapThreshold
+                ? getFactCodec(cfg) : null;
+    }
+
+    private synchronized FactStore getFactStore() {
+        if (factStore == null || factStore.isClosed()) {
+            factStore = new FactStore(
+                    Path.of(System.getProperty("java.io.tmpdir")));
+        }
+        return factStore;
+    }
+
+    /**
+     * Runs the solver (instrumented if metrics are enabled) by given function.
+     */
+    private DataflowResult<Node, Fact> solve(
+            IR ir, CFG<Node> cfg,
+            Function<Solver<Node, Fact>, DataflowResult<Node, Fact>> run) {
+        DataflowResult<Node, Fact> result;
+        initialize(cfg);
+        try {
+            if (metricsRecorder == null) {
+                result = run.apply(solver);
+            } else {
+                SolverMetrics metrics = new SolverMetrics(
+                        getId(), ir.getMethod().toString());
+                Solver<Node, Fact> instrumented =
+                        Solver.makeInstrumentedSolver(this, solverOptions, metrics);
+                result = metricsRecorder.record(metrics, () -> run.apply(instrumented));
+            }
+        } finally {
+            finish(cfg);
+        }
+        return compact(cfg, result);
+    }
+
+    /**
+     * Compacts given result of this analysis as configured by options
+     * "offheap-threshold" and "intern-facts".
+     *
+     * @return the compacted result, which may be given result itself.
+     */
+    DataflowResult<Node, Fact> compact(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
+        if (result instanceof MappedDataflowResult) {
+            return result;
+        }
+        FactCodec<Fact> codec = getOffHeapCodec(cfg);
+        if (codec != null) {
+            return MappedDataflowResult.spill(cfg, result, getFactStore(), codec);
+        }
+        if (internFacts) {
+            result.internFacts();
+        }
+        return result;
     }
 
     /**
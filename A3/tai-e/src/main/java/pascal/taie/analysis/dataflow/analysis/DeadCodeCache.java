@@ -0,0 +1,186 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.analysis;
+
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.util.collection.Maps;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * On-disk cache of dead code detection results, keyed by the hash of
+ * the IR of each method.
+ * <p>
+ * The cache file is a sequence of records, each of which consists of
+ * a 128-bit key followed by the number and the indexes of the dead
+ * statements. The records written by previous runs are memory-mapped
+ * and read on demand, and new records are appended to the file.
+ * The file is opened only while it is mapped or appended to; the mapping
+ * stays valid after the channel is closed.
+ * This class is thread-safe.
+ */
+class DeadCodeCache {
+
+    private static final int KEY_SIZE = 2 * Long.BYTES;
+
+    private final Path path;
+
+    /**
+     * Records written by previous runs.
+     */
+    private final ByteBuffer mapped;
+
+    /**
+     * Positions of the records in {@link #mapped}.
+     */
+    private final Map<Key, Integer> positions = Maps.newMap();
+
+    /**
+     * Records added by this run.
+     */
+    private final Map<Key, int[]> added = Maps.newMap();
+
+    /**
+     * Data that may affect the results other than the IR,
+     * e.g., options of the required analyses.
+     */
+    private final String salt;
+
+    DeadCodeCache(File file, String salt) {
+        this.salt = salt;
+        this.path = file.toPath();
+        file.getParentFile().mkdirs();
+        try (FileChannel channel = FileChannel.open(path, CREATE, READ, WRITE)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            channel.truncate(scan());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open dead code cache", e);
+        }
+    }
+
+    /**
+     * Indexes the records in the mapped file. An incomplete record at
+     * the end (e.g., left by an interrupted run) is ignored and overwritten.
+     *
+     * @return the end of the complete records.
+     */
+    private int scan() {
+        ByteBuffer buffer = mapped.duplicate();
+        while (buffer.remaining() >= KEY_SIZE + Integer.BYTES) {
+            int position = buffer.position();
+            Key key = new Key(buffer.getLong(), buffer.getLong());
+            int size = buffer.getInt();
+            if (size < 0 || buffer.remaining() < size * Integer.BYTES) {
+                buffer.position(position);
+                break;
+            }
+            positions.put(key, position);
+            buffer.position(buffer.position() + size * Integer.BYTES);
+        }
+        return buffer.position();
+    }
+
+    /**
+     * @return the key of given IR.
+     */
+    Key getKey(IR ir) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        StringBuilder sb = new StringBuilder(salt)
+                .append('\n').append(ir.getMethod()).append('\n');
+        for (Var var : ir.getVars()) {
+            sb.append(var.getName()).append(':').append(var.getType()).append('\n');
+        }
+        for (Stmt stmt : ir) {
+            sb.append(stmt.getIndex()).append(' ').append(stmt).append('\n');
+        }
+        ByteBuffer hash = ByteBuffer.wrap(
+                digest.digest(sb.toString().getBytes(StandardCharsets.UTF_8)));
+        return new Key(hash.getLong(), hash.getLong());
+    }
+
+    /**
+     * @return the indexes of the dead statements of the IR with given key,
+     * or null if the key is absent in this cache.
+     */
+    @Nullable
+    synchronized int[] get(Key key) {
+        int[] indexes = added.get(key);
+        if (indexes == null) {
+            Integer position = positions.get(key);
+            if (position != null) {
+                ByteBuffer buffer = mapped.duplicate();
+                buffer.position(position + KEY_SIZE);
+                indexes = new int[buffer.getInt()];
+                buffer.asIntBuffer().get(indexes);
+            }
+        }
+        return indexes;
+    }
+
+    /**
+     * Adds the indexes of the dead statements of the IR with given key,
+     * and writes them to the cache file.
+     */
+    synchronized void put(Key key, int[] indexes) {
+        if (added.containsKey(key) || positions.containsKey(key)) {
+            return;
+        }
+        added.put(key, indexes);
+        ByteBuffer buffer = ByteBuffer.allocate(
+                KEY_SIZE + Integer.BYTES * (1 + indexes.length));
+        buffer.putLong(key.high()).putLong(key.low()).putInt(indexes.length);
+        buffer.asIntBuffer().put(indexes);
+        buffer.rewind();
+        try (FileChannel channel = FileChannel.open(path, APPEND)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write dead code cache", e);
+        }
+    }
+
+    record Key(long high, long low) {
+    }
+}
@@ -22,6 +22,7 @@
 
 package pascal.taie.analysis.dataflow.analysis;
 
+import pascal.taie.World;
 import pascal.taie.analysis.MethodAnalysis;
 import pascal.taie.analysis.dataflow.analysis.constprop.CPFact;
 import pascal.taie.analysis.dataflow.analysis.constprop.ConstantPropagation;
@@ -32,6 +33,11 @@ import pascal.taie.analysis.graph.cfg.CFG;
 import pascal.taie.analysis.graph.cfg.CFGBuilder;
 import pascal.taie.analysis.graph.cfg.Edge;
 import pascal.taie.config.AnalysisConfig;
+import pascal.taie.config.ConfigException;
+import pascal.taie.config.ConfigManager;
+import pascal.taie.config.Configs;
+import pascal.taie.config.Options;
+import pascal.taie.config.PlanConfig;
 import pascal.taie.ir.IR;
 import pascal.taie.ir.exp.ArithmeticExp;
 import pascal.taie.ir.exp.ArrayAccess;
@@ -44,8 +50,15 @@ import pascal.taie.ir.stmt.AssignStmt;
 import pascal.taie.ir.stmt.If;
 import pascal.taie.ir.stmt.Stmt;
 import pascal.taie.ir.stmt.SwitchStmt;
+import pascal.taie.util.collection.Sets;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
 import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -53,27 +66,189 @@ public class DeadCodeDetection extends MethodAnalysis {
 
     public static final String ID = "deadcode";
 
+    /**
+     * Name of the cache file in the cache directory.
+     */
+    private static final String CACHE_FILE = "deadcode-cache.bin";
+
+    /**
+     * Cache of the results of previous runs, or null if cache is disabled.
+     */
+    private final DeadCodeCache cache;
+
+    /**
+     * Analyses which compute the required results on cache misses,
+     * or null if cache is disabled.
+     */
+    private final ConstantPropagation constprop;
+
+    private final LiveVariableAnalysis livevar;
+
     public DeadCodeDetection(AnalysisConfig config) {
         super(config);
+        if (getOptions().getBooleanOrDefault("cache", false)) {
+            // with cache enabled, the required analyses are not run by
+            // the plan unless they are specified in it explicitly, thus
+            // they are run here with the options given by the plan
+            List<AnalysisConfig> configs = readConfigs();
+            AnalysisConfig cpConfig = getConfig(configs, ConstantPropagation.ID);
+            AnalysisConfig lvConfig = getConfig(configs, LiveVariableAnalysis.ID);
+            constprop = new ConstantPropagation(cpConfig);
+            livevar = new LiveVariableAnalysis(lvConfig);
+            // results also depend on the options of the required analyses
+            String salt = ID + "=" + getOptions() + ";" +
+                    ConstantPropagation.ID + "=" + cpConfig.getOptions() + ";" +
+                    LiveVariableAnalysis.ID + "=" + lvConfig.getOptions();
+            String dir = getOptions().getString("cache-dir");
+            cache = new DeadCodeCache(new File(
+                    dir != null ? new File(dir) : Configs.getOutputDir(),
+                    CACHE_FILE), salt);
+        } else {
+            cache = null;
+            constprop = null;
+            livevar = null;
+        }
+    }
+
+    /**
+     * @return the analysis configs whose options are overwritten by
+     * the options given in the plan, in the same way as the configs
+     * of the analyses run by the plan.
+     */
+    private static List<AnalysisConfig> readConfigs() {
+        List<AnalysisConfig> configs;
+        try (InputStream content = Configs.getAnalysisConfig()) {
+            configs = AnalysisConfig.parseConfigs(content);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read analysis configs", e);
+        }
+        Options options = World.get().getOptions();
+        List<PlanConfig> plan;
+        if (!options.getAnalyses().isEmpty()) {
+            plan = PlanConfig.readConfigs(options);
+        } else if (options.getPlanFile() != null) {
+            plan = PlanConfig.readConfigs(options.getPlanFile());
+        } else {
+            plan = List.of();
+        }
+        new ConfigManager(configs).overwriteOptions(plan);
+        return configs;
+    }
+
+    private static AnalysisConfig getConfig(List<AnalysisConfig> configs, String id) {
+        return configs.stream()
+                .filter(config -> config.getId().equals(id))
+                .findFirst()
+                .orElseThrow(() -> new ConfigException("Analysis " + id + " is not found"));
     }
 
     @Override
     public Set<Stmt> analyze(IR ir) {
+        if (cache == null) {
+            return detect(ir, ir.getResult(ConstantPropagation.ID),
+                    ir.getResult(LiveVariableAnalysis.ID));
+        }
+        DeadCodeCache.Key key = cache.getKey(ir);
+        int[] indexes = cache.get(key);
+        if (indexes != null) {
+            Set<Stmt> deadCode = newStmtSet();
+            for (int index : indexes) {
+                deadCode.add(ir.getStmt(index));
+            }
+            return deadCode;
+        }
+        // the required results are computed only on cache misses,
+        // unless the required analyses have been run by the plan
+        DataflowResult<Stmt, CPFact> constants = ir.getResult(
+                ConstantPropagation.ID, () -> constprop.analyze(ir));
+        DataflowResult<Stmt, SetFact<Var>> liveVars = ir.getResult(
+                LiveVariableAnalysis.ID, () -> livevar.analyze(ir));
+        Set<Stmt> deadCode = detect(ir, constants, liveVars);
+        cache.put(key, deadCode.stream().mapToInt(Stmt::getIndex).toArray());
+        return deadCode;
+    }
+
+    /**
+     * @return a set which keeps statements sorted by their indexes.
+     */
+    private static Set<Stmt> newStmtSet() {
+        return new TreeSet<>(Comparator.comparing(Stmt::getIndex));
+    }
+
+    private Set<Stmt> detect(IR ir, DataflowResult<Stmt, CPFact> constants,
+                             DataflowResult<Stmt, SetFact<Var>> liveVars) {
         // obtain CFG
         CFG<Stmt> cfg = ir.getResult(CFGBuilder.ID);
-        // obtain result of constant propagation
-        DataflowResult<Stmt, CPFact> constants =
-                ir.getResult(ConstantPropagation.ID);
-        // obtain result of live variable analysis
-        DataflowResult<Stmt, SetFact<Var>> liveVars =
-                ir.getResult(LiveVariableAnalysis.ID);
         // keep statements (dead code) sorted in the resulting set
-        Set<Stmt> deadCode = new TreeSet<>(Comparator.comparing(Stmt::getIndex));
-        // TODO - finish me
-        // Your task is to recognize dead code in ir and add it to deadCode
+        Set<Stmt> deadCode = newStmtSet();
+        // traverse the CFG from entry via feasible edges, and collect
+        // dead assignments among the reached statements
+        Set<Stmt> reached = Sets.newSet(cfg.getNumberOfNodes());
+        Deque<Stmt> workList = new ArrayDeque<>();
+        reached.add(cfg.getEntry());
+        workList.add(cfg.getEntry());
+        while (!workList.isEmpty()) {
+            Stmt stmt = workList.poll();
+            if (isDeadAssignment(stmt, liveVars)) {
+                deadCode.add(stmt);
+            }
+            CPFact in = constants.getInFact(stmt);
+            for (Edge<Stmt> edge : cfg.getOutEdgesOf(stmt)) {
+                if (isFeasible(edge, in) && reached.add(edge.getTarget())) {
+                    workList.add(edge.getTarget());
+                }
+            }
+        }
+        // statements not reached are unreachable code
+        for (Stmt stmt : ir) {
+            if (!reached.contains(stmt)) {
+                deadCode.add(stmt);
+            }
+        }
         return deadCode;
     }
 
+    /**
+     * @return true if given statement assigns a variable which is not live
+     * after the statement, and the assignment has no side effect.
+     */
+    private static boolean isDeadAssignment(
+            Stmt stmt, DataflowResult<Stmt, SetFact<Var>> liveVars) {
+        return stmt instanceof AssignStmt<?, ?> assign &&
+                assign.getLValue() instanceof Var lhs &&
+                !liveVars.getOutFact(stmt).contains(lhs) &&
+                hasNoSideEffect(assign.getRValue());
+    }
+
+    /**
+     * @return false if given edge is never taken according to
+     * the IN fact of its source (a branch statement), otherwise true.
+     */
+    private static boolean isFeasible(Edge<Stmt> edge, CPFact in) {
+        Stmt source = edge.getSource();
+        if (source instanceof If ifStmt) {
+            Value cond = ConstantPropagation.evaluate(ifStmt.getCondition(), in);
+            if (cond.isConstant()) {
+                return switch (edge.getKind()) {
+                    case IF_TRUE -> cond.getConstant() == 1;
+                    case IF_FALSE -> cond.getConstant() == 0;
+                    default -> true;
+                };
+            }
+        } else if (source instanceof SwitchStmt switchStmt) {
+            Value var = in.get(switchStmt.getVar());
+            if (var.isConstant()) {
+                int value = var.getConstant();
+                if (edge.isSwitchCase()) {
+                    return edge.getCaseValue() == value;
+                } else if (edge.getKind() == Edge.Kind.SWITCH_DEFAULT) {
+                    return !switchStmt.getCaseValues().contains(value);
+                }
+            }
+        }
+        return true;
+    }
+
     /**
      * @return true if given RValue has no side effect, otherwise false.
      */
@@ -0,0 +1,75 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.analysis;
+
+/**
+ * Data-flow analysis whose facts keep a journal of their changes, so that
+ * the solver propagates only the changes instead of whole facts.
+ * <p>
+ * The journal of an OUT (IN) fact in forward (backward) analysis records
+ * the changes which have not been propagated to the successors
+ * (predecessors), and the journal of an IN (OUT) fact records the changes
+ * which have not been transferred.
+ *
+ * @param <Node> type of CFG nodes
+ * @param <Fact> type of data-flow facts
+ */
+public interface DeltaDataflowAnalysis<Node, Fact>
+        extends DataflowAnalysis<Node, Fact> {
+
+    /**
+     * Starts to keep the journal of given fact, where all current
+     * content of the fact is recorded as changed.
+     */
+    void startJournal(Fact fact);
+
+    /**
+     * Stops keeping the journal of given fact.
+     */
+    void stopJournal(Fact fact);
+
+    /**
+     * @return true if the journal of given fact records any changes.
+     */
+    boolean hasChanges(Fact fact);
+
+    /**
+     * Clears the journal of given fact.
+     */
+    void clearChanges(Fact fact);
+
+    /**
+     * Meets the changes recorded in the journal of a fact into
+     * another (target) fact.
+     */
+    void meetChangesInto(Fact fact, Fact target);
+
+    /**
+     * Node transfer function which only handles the changes recorded in
+     * the journal of in (out) fact for forward (backward) analysis,
+     * i.e., the rest of the fact has been transferred before.
+     *
+     * @return true if the transfer changed the out (in) fact, otherwise false.
+     */
+    boolean transferChanges(Node node, Fact in, Fact out);
+}
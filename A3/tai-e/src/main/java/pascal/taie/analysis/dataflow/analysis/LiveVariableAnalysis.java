@@ -22,9 +22,15 @@
 
 package pascal.taie.analysis.dataflow.analysis;
 
+import pascal.taie.analysis.dataflow.fact.BitSetFact;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.dataflow.fact.FactCodec;
 import pascal.taie.analysis.dataflow.fact.SetFact;
+import pascal.taie.analysis.dataflow.fact.SetFactCodec;
 import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.CFGBuilder;
 import pascal.taie.config.AnalysisConfig;
+import pascal.taie.ir.IR;
 import pascal.taie.ir.exp.Var;
 import pascal.taie.ir.stmt.Stmt;
 
@@ -36,8 +42,30 @@ public class LiveVariableAnalysis extends
 
     public static final String ID = "livevar";
 
+    /**
+     * Whether to represent facts as dense bit vectors over the variables
+     * of the analyzed method, see {@link BitSetFact}.
+     */
+    private final boolean bitSet;
+
+    /**
+     * Whether to solve the analysis by {@link SparseLiveSolver} instead of
+     * the data-flow solver.
+     */
+    private final boolean sparse;
+
     public LiveVariableAnalysis(AnalysisConfig config) {
         super(config);
+        bitSet = getOptions().getBooleanOrDefault("bitset", false);
+        sparse = getOptions().getBooleanOrDefault("sparse", false);
+    }
+
+    @Override
+    public DataflowResult<Stmt, SetFact<Var>> analyze(IR ir) {
+        if (sparse) {
+            return new SparseLiveSolver(this, ir.getResult(CFGBuilder.ID)).solve();
+        }
+        return super.analyze(ir);
     }
 
     @Override
@@ -47,24 +75,46 @@ public class LiveVariableAnalysis extends
 
     @Override
     public SetFact<Var> newBoundaryFact(CFG<Stmt> cfg) {
-        // TODO - finish me
-        return null;
+        return newInitialFact(cfg);
     }
 
     @Override
     public SetFact<Var> newInitialFact() {
-        // TODO - finish me
-        return null;
+        return new SetFact<>();
+    }
+
+    @Override
+    public SetFact<Var> newInitialFact(CFG<Stmt> cfg) {
+        return bitSet ? new BitSetFact<>(cfg.getIR().getVars()) : newInitialFact();
+    }
+
+    @Override
+    protected FactCodec<SetFact<Var>> getFactCodec(CFG<Stmt> cfg) {
+        return new SetFactCodec<>(cfg.getIR().getVars(), () -> newInitialFact(cfg));
     }
 
     @Override
     public void meetInto(SetFact<Var> fact, SetFact<Var> target) {
-        // TODO - finish me
+        target.union(fact);
     }
 
     @Override
     public boolean transferNode(Stmt stmt, SetFact<Var> in, SetFact<Var> out) {
-        // TODO - finish me
+        SetFact<Var> newIn = out.copy();
+        stmt.getDef().ifPresent(def -> {
+            if (def instanceof Var) {
+                newIn.remove((Var) def);
+            }
+        });
+        stmt.getUses().forEach(use -> {
+            if (use instanceof Var) {
+                newIn.add((Var) use);
+            }
+        });
+        if (!newIn.equals(in)) {
+            in.set(newIn);
+            return true;
+        }
         return false;
     }
 }
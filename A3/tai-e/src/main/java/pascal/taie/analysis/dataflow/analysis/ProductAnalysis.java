@@ -0,0 +1,206 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.analysis;
+
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.dataflow.fact.ProductFact;
+import pascal.taie.analysis.dataflow.solver.Solver;
+import pascal.taie.analysis.dataflow.solver.VisitOrder;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.CFGBuilder;
+import pascal.taie.analysis.graph.cfg.Edge;
+import pascal.taie.ir.IR;
+import pascal.taie.util.collection.Sets;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Product of several forward data-flow analyses, which solves all of
+ * them in a single pass of the solver over a CFG.
+ * <p>
+ * The fact of the product analysis at each node is a {@link ProductFact}
+ * holding the facts of all analyses, and the transfer and meet functions
+ * apply the ones of each analysis to its own fact. After solving,
+ * the result is split back into the results of each analysis.
+ * <p>
+ * The analyses are solved by their dense data-flow transfer functions
+ * in reverse postorder, thus options that configure the solver of an
+ * analysis (e.g., {@code solver-order}, {@code basic-block}, {@code delta},
+ * and the {@code sparse} option of constant propagation) do not take
+ * effect. Options "intern-facts" and "offheap-threshold" are applied to
+ * the split result of each analysis. Option "metrics" does not take
+ * effect either, as the analyses share the work of the solver.
+ *
+ * @param <Node> type of CFG nodes
+ */
+public class ProductAnalysis<Node> implements DataflowAnalysis<Node, ProductFact> {
+
+    private final List<AbstractDataflowAnalysis<Node, Object>> analyses;
+
+    private final Solver<Node, ProductFact> solver;
+
+    @SuppressWarnings("unchecked")
+    public ProductAnalysis(List<? extends AbstractDataflowAnalysis<Node, ?>> analyses) {
+        Set<String> ids = Sets.newSet();
+        for (AbstractDataflowAnalysis<Node, ?> analysis : analyses) {
+            if (!analysis.isForward()) {
+                throw new IllegalArgumentException(
+                        analysis.getId() + " is not a forward analysis");
+            }
+            if (!ids.add(analysis.getId())) {
+                throw new IllegalArgumentException(
+                        "Duplicate analysis " + analysis.getId());
+            }
+        }
+        this.analyses = List.copyOf(
+                (List<AbstractDataflowAnalysis<Node, Object>>) analyses);
+        this.solver = Solver.makeSolver(this, VisitOrder.RPO);
+    }
+
+    /**
+     * Analyzes given IR by all analyses, and stores the result of
+     * each analysis in the IR by its ID. The result of each analysis
+     * is compacted as configured by the options of the analysis.
+     *
+     * @return the results of the analyses, mapped by their IDs.
+     */
+    public Map<String, DataflowResult<Node, ?>> analyze(IR ir) {
+        CFG<Node> cfg = ir.getResult(CFGBuilder.ID);
+        analyses.forEach(analysis -> analysis.initialize(cfg));
+        DataflowResult<Node, ProductFact> result;
+        try {
+            result = solver.solve(cfg);
+        } finally {
+            analyses.forEach(analysis -> analysis.finish(cfg));
+        }
+        Map<String, DataflowResult<Node, ?>> results = new LinkedHashMap<>();
+        for (int i = 0; i < analyses.size(); ++i) {
+            AbstractDataflowAnalysis<Node, Object> analysis = analyses.get(i);
+            DataflowResult<Node, Object> analysisResult =
+                    analysis.compact(cfg, split(cfg, result, i));
+            ir.storeResult(analysis.getId(), analysisResult);
+            results.put(analysis.getId(), analysisResult);
+        }
+        return results;
+    }
+
+    /**
+     * Splits the result of the product analysis into the results of
+     * each analysis.
+     *
+     * @return the results of the analyses, mapped by their IDs.
+     */
+    public Map<String, DataflowResult<Node, ?>> split(
+            CFG<Node> cfg, DataflowResult<Node, ProductFact> result) {
+        Map<String, DataflowResult<Node, ?>> results = new LinkedHashMap<>();
+        for (int i = 0; i < analyses.size(); ++i) {
+            results.put(analyses.get(i).getId(), split(cfg, result, i));
+        }
+        return results;
+    }
+
+    /**
+     * @return the result of the i-th analysis in the result of
+     * the product analysis.
+     */
+    private DataflowResult<Node, Object> split(
+            CFG<Node> cfg, DataflowResult<Node, ProductFact> result, int i) {
+        DataflowResult<Node, Object> analysisResult = new DataflowResult<>();
+        for (Node node : cfg) {
+            analysisResult.setInFact(node, result.getInFact(node).get(i));
+            analysisResult.setOutFact(node, result.getOutFact(node).get(i));
+        }
+        return analysisResult;
+    }
+
+    private ProductFact newFact(
+            Function<AbstractDataflowAnalysis<Node, Object>, Object> factory) {
+        Object[] facts = new Object[analyses.size()];
+        for (int i = 0; i < facts.length; ++i) {
+            facts[i] = factory.apply(analyses.get(i));
+        }
+        return new ProductFact(facts);
+    }
+
+    @Override
+    public boolean isForward() {
+        return true;
+    }
+
+    @Override
+    public ProductFact newBoundaryFact(CFG<Node> cfg) {
+        return newFact(analysis -> analysis.newBoundaryFact(cfg));
+    }
+
+    @Override
+    public ProductFact newInitialFact() {
+        return newFact(DataflowAnalysis::newInitialFact);
+    }
+
+    @Override
+    public ProductFact newInitialFact(CFG<Node> cfg) {
+        return newFact(analysis -> analysis.newInitialFact(cfg));
+    }
+
+    @Override
+    public void meetInto(ProductFact fact, ProductFact target) {
+        for (int i = 0; i < analyses.size(); ++i) {
+            analyses.get(i).meetInto(fact.get(i), target.get(i));
+        }
+    }
+
+    @Override
+    public boolean transferNode(Node node, ProductFact in, ProductFact out) {
+        boolean changed = false;
+        for (int i = 0; i < analyses.size(); ++i) {
+            changed |= analyses.get(i).transferNode(node, in.get(i), out.get(i));
+        }
+        return changed;
+    }
+
+    @Override
+    public boolean needTransferEdge(Edge<Node> edge) {
+        for (AbstractDataflowAnalysis<Node, Object> analysis : analyses) {
+            if (analysis.needTransferEdge(edge)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public ProductFact transferEdge(Edge<Node> edge, ProductFact nodeFact) {
+        Object[] facts = new Object[analyses.size()];
+        for (int i = 0; i < facts.length; ++i) {
+            AbstractDataflowAnalysis<Node, Object> analysis = analyses.get(i);
+            facts[i] = analysis.needTransferEdge(edge)
+                    ? analysis.transferEdge(edge, nodeFact.get(i))
+                    : nodeFact.get(i);
+        }
+        return new ProductFact(facts);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.analysis;
+
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.dataflow.fact.SetFact;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.ir.exp.RValue;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Stmt;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Sparse live variable analysis for a single method.
+ * <p>
+ * Instead of propagating the sets of live variables over all statements,
+ * this solver handles the variables one by one: starting from the
+ * statements which use a variable, it walks backward along the CFG
+ * predecessors and marks the variable live, until it reaches the
+ * statements which define the variable. Thus, the work for a variable
+ * is proportional to the region where it is live.
+ * <p>
+ * The result is the same as the one given by the data-flow solver.
+ */
+class SparseLiveSolver {
+
+    private final LiveVariableAnalysis analysis;
+
+    private final CFG<Stmt> cfg;
+
+    SparseLiveSolver(LiveVariableAnalysis analysis, CFG<Stmt> cfg) {
+        this.analysis = analysis;
+        this.cfg = cfg;
+    }
+
+    DataflowResult<Stmt, SetFact<Var>> solve() {
+        DataflowResult<Stmt, SetFact<Var>> result = new DataflowResult<>();
+        for (Stmt stmt : cfg) {
+            result.setInFact(stmt, cfg.isExit(stmt) ?
+                    analysis.newBoundaryFact(cfg) : analysis.newInitialFact(cfg));
+            result.setOutFact(stmt, cfg.isExit(stmt) ?
+                    analysis.newBoundaryFact(cfg) : analysis.newInitialFact(cfg));
+        }
+        List<Var> vars = cfg.getIR().getVars();
+        List<List<Stmt>> useSites = buildUseSites(vars);
+        Deque<Stmt> workList = new ArrayDeque<>();
+        for (Var var : vars) {
+            // a variable is live before each statement using it
+            for (Stmt use : useSites.get(var.getIndex())) {
+                if (result.getMutableInFact(use).add(var)) {
+                    workList.add(use);
+                }
+            }
+            while (!workList.isEmpty()) {
+                Stmt stmt = workList.poll();
+                for (Stmt pred : cfg.getPredsOf(stmt)) {
+                    // the variable is live after pred, and also before pred
+                    // unless pred defines it
+                    if (result.getMutableOutFact(pred).add(var) &&
+                            !defines(pred, var) &&
+                            result.getMutableInFact(pred).add(var)) {
+                        workList.add(pred);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the statements using each variable, indexed by
+     * {@link Var#getIndex()}.
+     */
+    private List<List<Stmt>> buildUseSites(List<Var> vars) {
+        List<List<Stmt>> useSites = new ArrayList<>(vars.size());
+        for (int i = 0; i < vars.size(); ++i) {
+            useSites.add(new ArrayList<>());
+        }
+        for (Stmt stmt : cfg) {
+            for (RValue use : stmt.getUses()) {
+                if (use instanceof Var var) {
+                    useSites.get(var.getIndex()).add(stmt);
+                }
+            }
+        }
+        return useSites;
+    }
+
+    private static boolean defines(Stmt stmt, Var var) {
+        return stmt.getDef().filter(var::equals).isPresent();
+    }
+}
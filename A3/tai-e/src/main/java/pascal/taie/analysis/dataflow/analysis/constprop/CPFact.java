@@ -48,6 +48,16 @@ public class CPFact extends MapFact<Var, Value> {
         super(map);
     }
 
+    /**
+     * Constructs a fact without a backing map, for subclasses which keep
+     * the values in storage of their own, see {@link MapFact#MapFact()}.
+     *
+     * @param noMap ignored, only distinguishes this constructor
+     */
+    CPFact(Void noMap) {
+        super();
+    }
+
     /**
      * @return the value of given variable in this fact,
      * or UNDEF the variable is absent in this fact.
@@ -57,6 +67,13 @@ public class CPFact extends MapFact<Var, Value> {
         return map.getOrDefault(key, Value.getUndef());
     }
 
+    /**
+     * @return the value of given variable in this fact as a {@link PackedValue}.
+     */
+    long getPacked(Var key) {
+        return PackedValue.pack(get(key));
+    }
+
     @Override
     public boolean update(Var key, Value value) {
         if (value.isUndef()) {
@@ -0,0 +1,82 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.analysis.constprop;
+
+import pascal.taie.analysis.dataflow.fact.FactCodec;
+import pascal.taie.ir.exp.Var;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Encodes a {@link CPFact} as the number of its (non-UNDEF) variables
+ * followed by the index and the {@link PackedValue} of each variable.
+ */
+class CPFactCodec implements FactCodec<CPFact> {
+
+    private static final int ENTRY_SIZE = Integer.BYTES + Long.BYTES;
+
+    /**
+     * The variables of the analyzed method,
+     * where the i-th variable must have index i.
+     */
+    private final List<Var> vars;
+
+    /**
+     * Creates empty facts to decode into.
+     */
+    private final Supplier<CPFact> factory;
+
+    CPFactCodec(List<Var> vars, Supplier<CPFact> factory) {
+        this.vars = vars;
+        this.factory = factory;
+    }
+
+    @Override
+    public int sizeOf(CPFact fact) {
+        return Integer.BYTES + ENTRY_SIZE * fact.keySet().size();
+    }
+
+    @Override
+    public void encode(CPFact fact, ByteBuffer buffer) {
+        Set<Var> keys = fact.keySet();
+        buffer.putInt(keys.size());
+        for (Var var : keys) {
+            buffer.putInt(var.getIndex());
+            buffer.putLong(fact.getPacked(var));
+        }
+    }
+
+    @Override
+    public CPFact decode(ByteBuffer buffer) {
+        CPFact fact = factory.get();
+        int size = buffer.getInt();
+        for (int i = 0; i < size; ++i) {
+            Var var = vars.get(buffer.getInt());
+            fact.update(var, PackedValue.unpack(buffer.getLong()));
+        }
+        return fact;
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.analysis.constprop;
+
+import pascal.taie.ir.exp.BinaryExp;
+import pascal.taie.ir.exp.Exp;
+import pascal.taie.ir.exp.IntLiteral;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.DefinitionStmt;
+import pascal.taie.ir.stmt.Stmt;
+
+import javax.annotation.Nullable;
+
+/**
+ * Transfer function of constant propagation compiled for a statement.
+ * <p>
+ * Each statement is compiled once to one of a few kinds of transfers,
+ * which already resolved the defined variable, the operands and the
+ * operator of the statement, so that the transfer does not need to
+ * inspect the IR of the statement on each visit.
+ */
+abstract class CPTransfer {
+
+    /**
+     * Transfer of the statements which do not define integer variables.
+     */
+    private static final CPTransfer IDENTITY = new CPTransfer(null) {
+        @Override
+        long evaluate(CPFact in) {
+            return PackedValue.UNDEF;
+        }
+    };
+
+    /**
+     * The integer variable defined by the statement, or null if absent.
+     */
+    @Nullable
+    private final Var lhs;
+
+    private CPTransfer(@Nullable Var lhs) {
+        this.lhs = lhs;
+    }
+
+    /**
+     * Compiles the transfer function for given statement.
+     */
+    static CPTransfer compile(Stmt stmt) {
+        Var lhs = ConstantPropagation.getDefinedVar(stmt);
+        if (lhs == null) {
+            return IDENTITY;
+        }
+        Exp rhs = ((DefinitionStmt<?, ?>) stmt).getRValue();
+        if (rhs instanceof IntLiteral literal) {
+            return new Constant(lhs, PackedValue.makeConstant(literal.getValue()));
+        }
+        if (rhs instanceof Var var) {
+            return new Copy(lhs, var);
+        }
+        if (rhs instanceof BinaryExp binary) {
+            IntOp op = IntOp.of(binary.getOperator());
+            if (op != null &&
+                    ConstantPropagation.canHoldInt(binary.getOperand1()) &&
+                    ConstantPropagation.canHoldInt(binary.getOperand2())) {
+                return new Binary(lhs, op,
+                        binary.getOperand1(), binary.getOperand2());
+            }
+        }
+        return new Constant(lhs, PackedValue.NAC);
+    }
+
+    /**
+     * @return the value assigned to {@link #lhs} as a {@link PackedValue}.
+     */
+    abstract long evaluate(CPFact in);
+
+    /**
+     * Transfers in fact to out fact.
+     *
+     * @return true if the out fact changed, otherwise false.
+     */
+    boolean apply(CPFact in, CPFact out) {
+        if (in instanceof PackedCPFact packedIn &&
+                out instanceof PackedCPFact packedOut) {
+            return lhs == null
+                    ? packedOut.transfer(packedIn, -1, PackedValue.UNDEF)
+                    : packedOut.transfer(packedIn, lhs.getIndex(), evaluate(in));
+        }
+        boolean changed = false;
+        for (Var var : in.keySet()) {
+            if (!var.equals(lhs)) {
+                changed |= out.update(var, in.get(var));
+            }
+        }
+        if (lhs != null) {
+            changed |= out.update(lhs, PackedValue.unpack(evaluate(in)));
+        }
+        return changed;
+    }
+
+    /**
+     * Transfers the changed variables of in fact (recorded in its journal)
+     * to out fact, where the other variables have been transferred before.
+     *
+     * @return true if the out fact changed, otherwise false.
+     */
+    boolean applyChanges(CPFact in, CPFact out) {
+        boolean changed = false;
+        for (Var var : in.getChanges()) {
+            if (!var.equals(lhs)) {
+                changed |= out.update(var, in.get(var));
+            }
+        }
+        if (lhs != null) {
+            changed |= out.update(lhs, PackedValue.unpack(evaluate(in)));
+        }
+        return changed;
+    }
+
+    /**
+     * x = c, or x = e where e is never a constant.
+     */
+    private static class Constant extends CPTransfer {
+
+        private final long value;
+
+        private Constant(Var lhs, long value) {
+            super(lhs);
+            this.value = value;
+        }
+
+        @Override
+        long evaluate(CPFact in) {
+            return value;
+        }
+    }
+
+    /**
+     * x = y.
+     */
+    private static class Copy extends CPTransfer {
+
+        private final Var rhs;
+
+        private Copy(Var lhs, Var rhs) {
+            super(lhs);
+            this.rhs = rhs;
+        }
+
+        @Override
+        long evaluate(CPFact in) {
+            return in.getPacked(rhs);
+        }
+    }
+
+    /**
+     * x = y op z.
+     */
+    private static class Binary extends CPTransfer {
+
+        private final IntOp op;
+
+        private final Var operand1;
+
+        private final Var operand2;
+
+        private Binary(Var lhs, IntOp op, Var operand1, Var operand2) {
+            super(lhs);
+            this.op = op;
+            this.operand1 = operand1;
+            this.operand2 = operand2;
+        }
+
+        @Override
+        long evaluate(CPFact in) {
+            return ConstantPropagation.evaluatePacked(op,
+                    in.getPacked(operand1), in.getPacked(operand2));
+        }
+    }
+}
@@ -23,30 +23,125 @@
 package pascal.taie.analysis.dataflow.analysis.constprop;
 
 import pascal.taie.analysis.dataflow.analysis.AbstractDataflowAnalysis;
+import pascal.taie.analysis.dataflow.analysis.DeltaDataflowAnalysis;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.dataflow.fact.FactCodec;
 import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.CFGBuilder;
+import pascal.taie.analysis.graph.cfg.Edge;
 import pascal.taie.config.AnalysisConfig;
 import pascal.taie.ir.IR;
-import pascal.taie.ir.exp.ArithmeticExp;
 import pascal.taie.ir.exp.BinaryExp;
-import pascal.taie.ir.exp.BitwiseExp;
-import pascal.taie.ir.exp.ConditionExp;
 import pascal.taie.ir.exp.Exp;
 import pascal.taie.ir.exp.IntLiteral;
-import pascal.taie.ir.exp.ShiftExp;
 import pascal.taie.ir.exp.Var;
 import pascal.taie.ir.stmt.DefinitionStmt;
+import pascal.taie.ir.stmt.If;
 import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.ir.stmt.SwitchStmt;
 import pascal.taie.language.type.PrimitiveType;
 import pascal.taie.language.type.Type;
-import pascal.taie.util.AnalysisException;
+import pascal.taie.util.collection.Maps;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
 
 public class ConstantPropagation extends
-        AbstractDataflowAnalysis<Stmt, CPFact> {
+        AbstractDataflowAnalysis<Stmt, CPFact>
+        implements DeltaDataflowAnalysis<Stmt, CPFact> {
 
     public static final String ID = "constprop";
 
+    /**
+     * Whether to solve the analysis by {@link SparseCPSolver} instead of
+     * the data-flow solver.
+     */
+    private final boolean sparse;
+
+    /**
+     * Whether to represent facts as {@link PackedCPFact}s.
+     */
+    private final boolean packed;
+
+    /**
+     * Whether to propagate facts only along the feasible out-edges of
+     * {@link If} and {@link SwitchStmt} whose conditions are constants.
+     */
+    private final boolean edgeRefine;
+
+    /**
+     * Compiled transfer functions of the statements of the methods
+     * being analyzed. The transfers of a method are compiled before
+     * the solver starts, and discarded after the solver finishes.
+     */
+    private final Map<Stmt, CPTransfer> transfers = Maps.newConcurrentMap();
+
+    /**
+     * Map from the switch statements of the methods being analyzed to
+     * their switch-case edges indexed by case values. Like the transfers,
+     * the tables of a method only live while its solver runs.
+     */
+    private final Map<SwitchStmt, Map<Integer, Edge<Stmt>>> caseEdges =
+            Maps.newConcurrentMap();
+
     public ConstantPropagation(AnalysisConfig config) {
         super(config);
+        sparse = getOptions().getBooleanOrDefault("sparse", false);
+        packed = getOptions().getBooleanOrDefault("packed", false);
+        edgeRefine = getOptions().getBooleanOrDefault("edge-refine", false);
+    }
+
+    @Override
+    public DataflowResult<Stmt, CPFact> analyze(IR ir) {
+        if (sparse) {
+            return new SparseCPSolver(this, ir.getResult(CFGBuilder.ID)).solve();
+        }
+        return super.analyze(ir);
+    }
+
+    @Override
+    public DataflowResult<Stmt, CPFact> reanalyze(
+            IR ir, DataflowResult<Stmt, CPFact> previous,
+            Collection<Stmt> changedNodes, Collection<Edge<Stmt>> changedEdges) {
+        if (sparse) {
+            return analyze(ir);
+        }
+        return super.reanalyze(ir, previous, changedNodes, changedEdges);
+    }
+
+    /**
+     * Compiles the transfers of the nodes of given CFG, and builds
+     * the case-edge tables of its switch statements.
+     */
+    @Override
+    protected void initialize(CFG<Stmt> cfg) {
+        cfg.forEach(stmt -> {
+            transfers.put(stmt, CPTransfer.compile(stmt));
+            if (edgeRefine && stmt instanceof SwitchStmt switchStmt) {
+                Map<Integer, Edge<Stmt>> edges =
+                        Maps.newMap(switchStmt.getCaseValues().size());
+                for (Edge<Stmt> edge : cfg.getOutEdgesOf(switchStmt)) {
+                    if (edge.isSwitchCase()) {
+                        edges.put(edge.getCaseValue(), edge);
+                    }
+                }
+                caseEdges.put(switchStmt, edges);
+            }
+        });
+    }
+
+    /**
+     * Discards the transfers and case-edge tables of the nodes of given CFG.
+     */
+    @Override
+    protected void finish(CFG<Stmt> cfg) {
+        cfg.forEach(stmt -> {
+            transfers.remove(stmt);
+            caseEdges.remove(stmt);
+        });
     }
 
     @Override
@@ -56,33 +151,167 @@ public class ConstantPropagation extends
 
     @Override
     public CPFact newBoundaryFact(CFG<Stmt> cfg) {
-        // TODO - finish me
-        return null;
+        CPFact fact = newInitialFact(cfg);
+        for (Var param : cfg.getIR().getParams()) {
+            if (canHoldInt(param)) {
+                fact.update(param, Value.getNAC());
+            }
+        }
+        return fact;
     }
 
     @Override
     public CPFact newInitialFact() {
-        // TODO - finish me
-        return null;
+        return new CPFact();
+    }
+
+    @Override
+    public CPFact newInitialFact(CFG<Stmt> cfg) {
+        return packed ? new PackedCPFact(cfg.getIR().getVars()) : newInitialFact();
+    }
+
+    @Override
+    protected FactCodec<CPFact> getFactCodec(CFG<Stmt> cfg) {
+        return new CPFactCodec(cfg.getIR().getVars(), () -> newInitialFact(cfg));
     }
 
     @Override
     public void meetInto(CPFact fact, CPFact target) {
-        // TODO - finish me
+        if (fact instanceof PackedCPFact packedFact &&
+                target instanceof PackedCPFact packedTarget) {
+            packedTarget.meet(packedFact);
+            return;
+        }
+        // absent variables are UNDEF, and UNDEF meets v is v,
+        // thus we only need to handle the variables in fact
+        fact.forEach((var, value) ->
+                target.update(var, meetValue(value, target.get(var))));
     }
 
     /**
      * Meets two Values.
      */
     public Value meetValue(Value v1, Value v2) {
-        // TODO - finish me
-        return null;
+        if (v1.isNAC() || v2.isNAC()) {
+            return Value.getNAC();
+        }
+        if (v1.isUndef()) {
+            return v2;
+        }
+        if (v2.isUndef()) {
+            return v1;
+        }
+        return v1.equals(v2) ? v1 : Value.getNAC();
     }
 
     @Override
     public boolean transferNode(Stmt stmt, CPFact in, CPFact out) {
-        // TODO - finish me
-        return false;
+        return getTransfer(stmt).apply(in, out);
+    }
+
+    private CPTransfer getTransfer(Stmt stmt) {
+        CPTransfer transfer = transfers.get(stmt);
+        if (transfer == null) {
+            // e.g., when facts are rebuilt after the solver finished
+            transfer = CPTransfer.compile(stmt);
+        }
+        return transfer;
+    }
+
+    @Override
+    public boolean needTransferEdge(Edge<Stmt> edge) {
+        return edgeRefine && (edge.getSource() instanceof If ||
+                edge.getSource() instanceof SwitchStmt);
+    }
+
+    /**
+     * Propagates the fact along given out-edge of a branch statement
+     * only if the edge is feasible, otherwise propagates the empty fact,
+     * i.e., every variable is UNDEF along infeasible edges.
+     */
+    @Override
+    public CPFact transferEdge(Edge<Stmt> edge, CPFact nodeFact) {
+        return isFeasible(edge, nodeFact) ? nodeFact : newInitialFact();
+    }
+
+    /**
+     * @return false if the condition of the source of given edge is
+     * a constant which does not take the edge, otherwise true.
+     */
+    private boolean isFeasible(Edge<Stmt> edge, CPFact out) {
+        Stmt source = edge.getSource();
+        if (source instanceof If ifStmt) {
+            Value cond = evaluate(ifStmt.getCondition(), out);
+            if (cond.isConstant()) {
+                return switch (edge.getKind()) {
+                    case IF_TRUE -> cond.getConstant() == 1;
+                    case IF_FALSE -> cond.getConstant() == 0;
+                    default -> true;
+                };
+            }
+        } else if (source instanceof SwitchStmt switchStmt) {
+            Value var = out.get(switchStmt.getVar());
+            if (var.isConstant()) {
+                int value = var.getConstant();
+                Map<Integer, Edge<Stmt>> edges = caseEdges.get(switchStmt);
+                if (edges == null) {
+                    // e.g., when facts are rebuilt after the solver finished
+                    return edge.isSwitchCase()
+                            ? edge.getCaseValue() == value
+                            : !switchStmt.getCaseValues().contains(value);
+                }
+                Edge<Stmt> taken = edges.get(value);
+                return edge.isSwitchCase()
+                        ? edge.equals(taken)
+                        : taken == null;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void startJournal(CPFact fact) {
+        fact.startJournal();
+    }
+
+    @Override
+    public void stopJournal(CPFact fact) {
+        fact.stopJournal();
+    }
+
+    @Override
+    public boolean hasChanges(CPFact fact) {
+        return fact.hasChanges();
+    }
+
+    @Override
+    public void clearChanges(CPFact fact) {
+        fact.clearChanges();
+    }
+
+    @Override
+    public void meetChangesInto(CPFact fact, CPFact target) {
+        for (Var var : fact.getChanges()) {
+            target.update(var, meetValue(fact.get(var), target.get(var)));
+        }
+    }
+
+    @Override
+    public boolean transferChanges(Stmt stmt, CPFact in, CPFact out) {
+        return getTransfer(stmt).applyChanges(in, out);
+    }
+
+    /**
+     * @return the variable defined by given statement if it can hold
+     * integer value, otherwise null.
+     */
+    @Nullable
+    static Var getDefinedVar(Stmt stmt) {
+        if (stmt instanceof DefinitionStmt<?, ?> def &&
+                def.getLValue() instanceof Var lhs && canHoldInt(lhs)) {
+            return lhs;
+        }
+        return null;
     }
 
     /**
@@ -103,6 +332,23 @@ public class ConstantPropagation extends
         return false;
     }
 
+    /**
+     * @return true if this analysis propagates facts only along the
+     * feasible out-edges of branch statements.
+     */
+    boolean isEdgeRefine() {
+        return edgeRefine;
+    }
+
+    /**
+     * Creates a {@link ConstantQuery} which answers the values of variables
+     * at given statements of given IR on demand, without solving this
+     * analysis for the whole method.
+     */
+    public ConstantQuery newQuery(IR ir) {
+        return new ConstantQuery(this, ir);
+    }
+
     /**
      * Evaluates the {@link Value} of given expression.
      *
@@ -111,7 +357,67 @@ public class ConstantPropagation extends
      * @return the resulting {@link Value}
      */
     public static Value evaluate(Exp exp, CPFact in) {
-        // TODO - finish me
-        return null;
+        return PackedValue.unpack(evaluatePacked(exp, in::getPacked));
+    }
+
+    /**
+     * Evaluates the {@link Value} of given expression.
+     *
+     * @param exp    the expression to be evaluated
+     * @param values function that gives the values of the variables
+     *               used by the expression
+     * @return the resulting {@link Value}
+     */
+    static Value evaluate(Exp exp, Function<Var, Value> values) {
+        return PackedValue.unpack(evaluatePacked(exp,
+                var -> PackedValue.pack(values.apply(var))));
+    }
+
+    /**
+     * Evaluates the value of given expression as a {@link PackedValue}.
+     *
+     * @param exp    the expression to be evaluated
+     * @param values function that gives the encoded values of
+     *               the variables used by the expression
+     * @return the resulting encoded value
+     */
+    static long evaluatePacked(Exp exp, ToLongFunction<Var> values) {
+        if (exp instanceof IntLiteral literal) {
+            return PackedValue.makeConstant(literal.getValue());
+        }
+        if (exp instanceof Var var) {
+            return values.applyAsLong(var);
+        }
+        if (exp instanceof BinaryExp binary) {
+            IntOp op = IntOp.of(binary.getOperator());
+            Var operand1 = binary.getOperand1();
+            Var operand2 = binary.getOperand2();
+            if (op == null || !canHoldInt(operand1) || !canHoldInt(operand2)) {
+                return PackedValue.NAC;
+            }
+            return evaluatePacked(op, values.applyAsLong(operand1),
+                    values.applyAsLong(operand2));
+        }
+        return PackedValue.NAC;
+    }
+
+    /**
+     * Evaluates binary operation on two encoded values.
+     *
+     * @return the resulting encoded value
+     */
+    static long evaluatePacked(IntOp op, long v1, long v2) {
+        if (v2 == PackedValue.makeConstant(0) && op.isDivision()) {
+            // division by zero
+            return PackedValue.UNDEF;
+        }
+        if (PackedValue.isConstant(v1) && PackedValue.isConstant(v2)) {
+            return PackedValue.makeConstant(op.apply(
+                    PackedValue.getConstant(v1), PackedValue.getConstant(v2)));
+        }
+        if (v1 == PackedValue.NAC || v2 == PackedValue.NAC) {
+            return PackedValue.NAC;
+        }
+        return PackedValue.UNDEF;
     }
 }
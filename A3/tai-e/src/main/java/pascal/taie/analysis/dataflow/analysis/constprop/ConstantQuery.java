@@ -0,0 +1,218 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.analysis.constprop;
+
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.CFGBuilder;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.Exp;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.DefinitionStmt;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
+import pascal.taie.util.collection.TwoKeyMap;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Answers queries of the form "what is the value of variable v before
+ * statement s" on demand, without solving constant propagation for the
+ * whole method.
+ * <p>
+ * A query walks backward from the statement along the CFG predecessors
+ * to find the definitions of the variable which reach the statement, and
+ * meets the values of these definitions. The value of a definition is
+ * evaluated by querying its operands before the definition, i.e., the
+ * queries follow the def-use chains. The answers of the queries and the
+ * values of the definitions are memoized. If the value of a definition
+ * depends on itself (i.e., the variable is carried around a loop), the
+ * queries fall back to solving the whole method once, and all later
+ * queries are answered by that result.
+ * <p>
+ * The answers are the same as the IN facts computed by {@link ConstantPropagation}.
+ * As the feasibility of the branches depends on the values at the branch
+ * statements, the queries of an analysis which refines edges are always
+ * answered by solving the whole method.
+ * This class is not thread-safe.
+ */
+public class ConstantQuery {
+
+    /**
+     * Maximum depth of nested definitions before falling back to the solver.
+     */
+    private static final int MAX_DEPTH = 512;
+
+    private final ConstantPropagation analysis;
+
+    private final IR ir;
+
+    private final CFG<Stmt> cfg;
+
+    /**
+     * Answers of the completed queries.
+     */
+    private final TwoKeyMap<Var, Stmt, Value> answers = Maps.newTwoKeyMap();
+
+    /**
+     * Values of the evaluated definitions.
+     */
+    private final Map<Stmt, Value> defValues = Maps.newMap();
+
+    /**
+     * The definitions being evaluated.
+     */
+    private final Set<Stmt> pending = Sets.newHybridSet();
+
+    /**
+     * Whether the current query has reached a definition being evaluated
+     * (or too deep definitions), in which case it cannot be answered on
+     * demand. Such definitions are assumed to be NAC, so that the query
+     * finishes quickly, and its answer is discarded.
+     */
+    private boolean looped;
+
+    /**
+     * Result of the solver, or null if the queries have not fallen back to it.
+     */
+    private DataflowResult<Stmt, CPFact> result;
+
+    ConstantQuery(ConstantPropagation analysis, IR ir) {
+        this.analysis = analysis;
+        this.ir = ir;
+        this.cfg = ir.getResult(CFGBuilder.ID);
+    }
+
+    /**
+     * @return the value of given variable before given statement,
+     * i.e., the value in the IN fact of the statement.
+     */
+    public Value getValue(Var var, Stmt stmt) {
+        if (result == null && !analysis.isEdgeRefine()) {
+            Value value = getValueIn(var, stmt, 0);
+            if (!looped) {
+                return value;
+            }
+            // the memoized values may depend on the assumed NACs,
+            // but they are not used after falling back to the solver
+            pending.clear();
+        }
+        if (result == null) {
+            result = analysis.analyze(ir);
+        }
+        return result.getInFact(stmt).get(var);
+    }
+
+    /**
+     * @return the value of given expression evaluated before given statement.
+     */
+    public Value evaluate(Exp exp, Stmt stmt) {
+        return ConstantPropagation.evaluate(exp, var -> getValue(var, stmt));
+    }
+
+    private Value getValueIn(Var var, Stmt stmt, int depth) {
+        if (!ConstantPropagation.canHoldInt(var)) {
+            // such variables are never tracked by constant propagation
+            return Value.getUndef();
+        }
+        if (cfg.isEntry(stmt)) {
+            return getBoundaryValue(var);
+        }
+        Value answer = answers.get(var, stmt);
+        if (answer != null) {
+            return answer;
+        }
+        Value value = Value.getUndef();
+        for (Stmt def : getReachingDefs(var, stmt)) {
+            Value defValue = cfg.isEntry(def)
+                    ? getBoundaryValue(var)
+                    : getDefValue(def, depth + 1);
+            value = analysis.meetValue(value, defValue);
+            if (value.isNAC()) {
+                break;
+            }
+        }
+        answers.put(var, stmt, value);
+        return value;
+    }
+
+    /**
+     * @return the definitions of given variable which reach given statement.
+     * The entry node is included if some paths from the entry to the
+     * statement do not define the variable.
+     */
+    private List<Stmt> getReachingDefs(Var var, Stmt stmt) {
+        List<Stmt> defs = new ArrayList<>();
+        Set<Stmt> visited = Sets.newSet();
+        Deque<Stmt> workList = new ArrayDeque<>();
+        for (Stmt pred : cfg.getPredsOf(stmt)) {
+            if (visited.add(pred)) {
+                workList.push(pred);
+            }
+        }
+        while (!workList.isEmpty()) {
+            Stmt node = workList.pop();
+            if (cfg.isEntry(node) ||
+                    var.equals(ConstantPropagation.getDefinedVar(node))) {
+                defs.add(node);
+            } else {
+                for (Stmt pred : cfg.getPredsOf(node)) {
+                    if (visited.add(pred)) {
+                        workList.push(pred);
+                    }
+                }
+            }
+        }
+        return defs;
+    }
+
+    /**
+     * @return the value of the variable defined by given definition.
+     */
+    private Value getDefValue(Stmt def, int depth) {
+        Value value = defValues.get(def);
+        if (value != null) {
+            return value;
+        }
+        if (looped || depth > MAX_DEPTH || !pending.add(def)) {
+            looped = true;
+            return Value.getNAC();
+        }
+        Exp rhs = ((DefinitionStmt<?, ?>) def).getRValue();
+        value = ConstantPropagation.evaluate(rhs,
+                v -> getValueIn(v, def, depth));
+        pending.remove(def);
+        defValues.put(def, value);
+        return value;
+    }
+
+    private Value getBoundaryValue(Var var) {
+        return ir.getParams().contains(var) ? Value.getNAC() : Value.getUndef();
+    }
+}
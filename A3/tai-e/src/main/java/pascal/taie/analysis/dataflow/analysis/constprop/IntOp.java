@@ -0,0 +1,192 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.analysis.constprop;
+
+import pascal.taie.ir.exp.ArithmeticExp;
+import pascal.taie.ir.exp.BinaryExp;
+import pascal.taie.ir.exp.BitwiseExp;
+import pascal.taie.ir.exp.ConditionExp;
+import pascal.taie.ir.exp.ShiftExp;
+
+import javax.annotation.Nullable;
+
+/**
+ * Binary operators on integer constants supported by constant propagation.
+ */
+enum IntOp {
+
+    ADD {
+        @Override
+        int apply(int i1, int i2) {
+            return i1 + i2;
+        }
+    },
+    SUB {
+        @Override
+        int apply(int i1, int i2) {
+            return i1 - i2;
+        }
+    },
+    MUL {
+        @Override
+        int apply(int i1, int i2) {
+            return i1 * i2;
+        }
+    },
+    DIV {
+        @Override
+        int apply(int i1, int i2) {
+            return i1 / i2;
+        }
+    },
+    REM {
+        @Override
+        int apply(int i1, int i2) {
+            return i1 % i2;
+        }
+    },
+    OR {
+        @Override
+        int apply(int i1, int i2) {
+            return i1 | i2;
+        }
+    },
+    AND {
+        @Override
+        int apply(int i1, int i2) {
+            return i1 & i2;
+        }
+    },
+    XOR {
+        @Override
+        int apply(int i1, int i2) {
+            return i1 ^ i2;
+        }
+    },
+    SHL {
+        @Override
+        int apply(int i1, int i2) {
+            return i1 << i2;
+        }
+    },
+    SHR {
+        @Override
+        int apply(int i1, int i2) {
+            return i1 >> i2;
+        }
+    },
+    USHR {
+        @Override
+        int apply(int i1, int i2) {
+            return i1 >>> i2;
+        }
+    },
+    EQ {
+        @Override
+        int apply(int i1, int i2) {
+            return i1 == i2 ? 1 : 0;
+        }
+    },
+    NE {
+        @Override
+        int apply(int i1, int i2) {
+            return i1 != i2 ? 1 : 0;
+        }
+    },
+    LT {
+        @Override
+        int apply(int i1, int i2) {
+            return i1 < i2 ? 1 : 0;
+        }
+    },
+    GT {
+        @Override
+        int apply(int i1, int i2) {
+            return i1 > i2 ? 1 : 0;
+        }
+    },
+    LE {
+        @Override
+        int apply(int i1, int i2) {
+            return i1 <= i2 ? 1 : 0;
+        }
+    },
+    GE {
+        @Override
+        int apply(int i1, int i2) {
+            return i1 >= i2 ? 1 : 0;
+        }
+    };
+
+    /**
+     * Applies this operator on two integer constants.
+     * The caller must not apply {@link #DIV} or {@link #REM} on zero divisor.
+     */
+    abstract int apply(int i1, int i2);
+
+    /**
+     * @return true if this operator throws on zero divisor.
+     */
+    boolean isDivision() {
+        return this == DIV || this == REM;
+    }
+
+    /**
+     * @return the operator corresponding to given IR operator,
+     * or null if the IR operator is not supported.
+     */
+    @Nullable
+    static IntOp of(BinaryExp.Op op) {
+        if (op instanceof ArithmeticExp.Op arithmeticOp) {
+            return switch (arithmeticOp) {
+                case ADD -> ADD;
+                case SUB -> SUB;
+                case MUL -> MUL;
+                case DIV -> DIV;
+                case REM -> REM;
+            };
+        } else if (op instanceof BitwiseExp.Op bitwiseOp) {
+            return switch (bitwiseOp) {
+                case OR -> OR;
+                case AND -> AND;
+                case XOR -> XOR;
+            };
+        } else if (op instanceof ShiftExp.Op shiftOp) {
+            return switch (shiftOp) {
+                case SHL -> SHL;
+                case SHR -> SHR;
+                case USHR -> USHR;
+            };
+        } else if (op instanceof ConditionExp.Op conditionOp) {
+            return switch (conditionOp) {
+                case EQ -> EQ;
+                case NE -> NE;
+                case LT -> LT;
+                case GT -> GT;
+                case LE -> LE;
+                case GE -> GE;
+            };
+        }
+        return null;
+    }
+}
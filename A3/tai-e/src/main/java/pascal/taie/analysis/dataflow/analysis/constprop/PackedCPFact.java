@@ -0,0 +1,247 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.analysis.constprop;
+
+import pascal.taie.analysis.dataflow.fact.MapFact;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * {@link CPFact} which stores the lattice value of each variable as
+ * a {@link PackedValue} in a long array indexed by {@link Var#getIndex()}.
+ * <p>
+ * The variables that may appear in the fact (i.e., the variables of the
+ * analyzed method) are given as a universe, and meet, copy and transfer
+ * on two facts over the same universe work element by element without
+ * allocating {@link Value}s or map entries. {@link Value}s are only
+ * created when the fact is accessed via the {@link CPFact} methods.
+ */
+public class PackedCPFact extends CPFact {
+
+    /**
+     * The variables that may be contained in this fact,
+     * where the i-th variable must have index i.
+     */
+    private final List<Var> vars;
+
+    private final long[] values;
+
+    /**
+     * Constructs a fact over the given variables, which are all UNDEF.
+     */
+    public PackedCPFact(List<Var> vars) {
+        this(vars, new long[vars.size()]);
+    }
+
+    private PackedCPFact(List<Var> vars, long[] values) {
+        super((Void) null);
+        this.vars = vars;
+        this.values = values;
+    }
+
+    @Override
+    long getPacked(Var var) {
+        return values[var.getIndex()];
+    }
+
+    /**
+     * Sets the encoded value of given variable.
+     *
+     * @return if the update changes this fact.
+     */
+    boolean setPacked(Var var, long value) {
+        checkModifiable();
+        int i = var.getIndex();
+        if (values[i] != value) {
+            values[i] = value;
+            recordChange(var);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Meets given fact into this fact.
+     */
+    void meet(PackedCPFact fact) {
+        checkModifiable();
+        for (int i = 0; i < values.length; ++i) {
+            long value = PackedValue.meet(fact.values[i], values[i]);
+            if (values[i] != value) {
+                values[i] = value;
+                recordChange(vars.get(i));
+            }
+        }
+    }
+
+    /**
+     * Sets this fact to the given fact, except that the variable
+     * at index {@code defIndex} (if not -1) is set to {@code defValue}.
+     *
+     * @return if this fact changed.
+     */
+    boolean transfer(PackedCPFact in, int defIndex, long defValue) {
+        checkModifiable();
+        boolean changed = false;
+        for (int i = 0; i < values.length; ++i) {
+            long value = i == defIndex ? defValue : in.values[i];
+            if (values[i] != value) {
+                values[i] = value;
+                recordChange(vars.get(i));
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public Value get(Var key) {
+        return PackedValue.unpack(getPacked(key));
+    }
+
+    @Override
+    public boolean update(Var key, Value value) {
+        return setPacked(key, PackedValue.pack(value));
+    }
+
+    @Override
+    public Value remove(Var key) {
+        long old = getPacked(key);
+        setPacked(key, PackedValue.UNDEF);
+        return old == PackedValue.UNDEF ? null : PackedValue.unpack(old);
+    }
+
+    @Override
+    public boolean copyFrom(MapFact<Var, Value> fact) {
+        if (fact instanceof PackedCPFact that) {
+            checkModifiable();
+            boolean changed = false;
+            for (int i = 0; i < values.length; ++i) {
+                if (that.values[i] != PackedValue.UNDEF &&
+                        values[i] != that.values[i]) {
+                    values[i] = that.values[i];
+                    recordChange(vars.get(i));
+                    changed = true;
+                }
+            }
+            return changed;
+        }
+        return super.copyFrom(fact);
+    }
+
+    @Override
+    public PackedCPFact copy() {
+        return new PackedCPFact(vars, values.clone());
+    }
+
+    @Override
+    public void clear() {
+        checkModifiable();
+        indexes().forEach(i -> recordChange(vars.get(i)));
+        Arrays.fill(values, PackedValue.UNDEF);
+    }
+
+    /**
+     * @return indexes of the variables which are not UNDEF in this fact.
+     */
+    private IntStream indexes() {
+        return IntStream.range(0, values.length)
+                .filter(i -> values[i] != PackedValue.UNDEF);
+    }
+
+    @Override
+    public Set<Var> keySet() {
+        Set<Var> keys = Sets.newHybridSet();
+        indexes().forEach(i -> keys.add(vars.get(i)));
+        return keys;
+    }
+
+    @Override
+    public Stream<Map.Entry<Var, Value>> entries() {
+        return indexes().mapToObj(i ->
+                Map.entry(vars.get(i), PackedValue.unpack(values[i])));
+    }
+
+    @Override
+    public void forEach(BiConsumer<Var, Value> action) {
+        indexes().forEach(i ->
+                action.accept(vars.get(i), PackedValue.unpack(values[i])));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o instanceof PackedCPFact that && vars == that.vars) {
+            return Arrays.equals(values, that.values);
+        }
+        if (!(o instanceof MapFact<?, ?> that)) {
+            return false;
+        }
+        // compare by the mappings, e.g., with a map-based CPFact
+        Map<Object, Object> thisMap = Maps.newHybridMap();
+        Map<Object, Object> thatMap = Maps.newHybridMap();
+        forEach(thisMap::put);
+        that.forEach(thatMap::put);
+        return thisMap.equals(thatMap);
+    }
+
+    /**
+     * Computes the hash code of the mappings as {@link Map#hashCode()}
+     * does, so that equal facts of different representations have
+     * equal hash codes, but without unpacking the values.
+     */
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int i = 0; i < values.length; ++i) {
+            long value = values[i];
+            if (value != PackedValue.UNDEF) {
+                // Value.hashCode() is the integer of a constant, and 0 for NAC
+                hash += vars.get(i).hashCode() ^ (PackedValue.isConstant(value)
+                        ? PackedValue.getConstant(value) : 0);
+            }
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "{" + entries()
+                .sorted(Comparator.comparing(e -> e.getKey().toString()))
+                .map(e -> e.getKey() + "=" + e.getValue())
+                .collect(Collectors.joining(", ")) + "}";
+    }
+}
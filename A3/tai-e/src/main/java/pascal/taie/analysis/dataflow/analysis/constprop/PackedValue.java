@@ -0,0 +1,82 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.analysis.constprop;
+
+/**
+ * Encodes lattice values of constant propagation as primitive longs,
+ * so that they can be stored and computed without allocating {@link Value}s.
+ * <p>
+ * Bits 32-33 of an encoded value hold its kind (0 for UNDEF, 1 for
+ * constant, 2 for NAC), and for a constant, the low 32 bits hold
+ * the integer. Thus, the default long value 0 is UNDEF.
+ */
+final class PackedValue {
+
+    static final long UNDEF = 0L;
+
+    static final long NAC = 2L << 32;
+
+    private static final long CONSTANT_TAG = 1L << 32;
+
+    private PackedValue() {
+    }
+
+    static long makeConstant(int value) {
+        return CONSTANT_TAG | (value & 0xFFFFFFFFL);
+    }
+
+    static boolean isConstant(long value) {
+        return (value >>> 32) == 1;
+    }
+
+    /**
+     * @return the integer of given constant.
+     */
+    static int getConstant(long value) {
+        return (int) value;
+    }
+
+    /**
+     * Meets two encoded values.
+     */
+    static long meet(long v1, long v2) {
+        if (v1 == v2 || v2 == UNDEF) {
+            return v1;
+        }
+        return v1 == UNDEF ? v2 : NAC;
+    }
+
+    static long pack(Value value) {
+        if (value.isConstant()) {
+            return makeConstant(value.getConstant());
+        }
+        return value.isNAC() ? NAC : UNDEF;
+    }
+
+    static Value unpack(long value) {
+        if (isConstant(value)) {
+            return Value.makeConstant(getConstant(value));
+        }
+        return value == NAC ? Value.getNAC() : Value.getUndef();
+    }
+}
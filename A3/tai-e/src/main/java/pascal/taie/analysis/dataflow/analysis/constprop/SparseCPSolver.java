@@ -0,0 +1,647 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.analysis.constprop;
+
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.dataflow.fact.MapFact;
+import pascal.taie.analysis.dataflow.solver.VisitOrder;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.Edge;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.DefinitionStmt;
+import pascal.taie.ir.stmt.If;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.ir.stmt.SwitchStmt;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.MultiMap;
+import pascal.taie.util.collection.Sets;
+import pascal.taie.util.collection.TwoKeyMap;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Sparse conditional constant propagation (SCCP) for a single method.
+ * <p>
+ * Instead of keeping a {@link CPFact} at every statement, this solver
+ * builds (minimal) SSA form on top of the statement-level CFG, i.e.,
+ * it places phi definitions at the iterated dominance frontiers of the
+ * definitions of each integer variable, and links every use to its
+ * reaching definition. The lattice values are then propagated along
+ * the resulting def-use chains, and a statement is only evaluated after
+ * some of its incoming CFG edges become executable.
+ * <p>
+ * The solver exposes its result as a {@link DataflowResult}, whose facts
+ * are computed lazily from the SSA values when they are requested.
+ */
+class SparseCPSolver {
+
+    private final ConstantPropagation analysis;
+
+    private final CFG<Stmt> cfg;
+
+    /**
+     * Nodes of the CFG in reverse postorder.
+     */
+    private final List<Stmt> nodes;
+
+    /**
+     * Reverse postorder number of each node.
+     */
+    private final Map<Stmt, Integer> indexes;
+
+    /**
+     * Reverse postorder number of the immediate dominator of each node,
+     * or -1 if the node is unreachable from the entry.
+     */
+    private final int[] idoms;
+
+    /**
+     * Integer variables of the method.
+     */
+    private final List<Var> vars;
+
+    /**
+     * Definitions at the entry of the method, indexed by variable index.
+     */
+    private final Def[] entryDefs;
+
+    private final Map<Stmt, Def> stmtDefs = Maps.newMap();
+
+    private final MultiMap<Stmt, Phi> phis = Maps.newMultiMap();
+
+    /**
+     * Reaching definitions of the variables used by each statement.
+     */
+    private final TwoKeyMap<Stmt, Var, Def> useDefs = Maps.newTwoKeyMap();
+
+    /**
+     * Memoized reaching definitions at the IN of the nodes,
+     * filled on demand when the result is queried.
+     */
+    private final TwoKeyMap<Var, Stmt, Def> inDefs = Maps.newTwoKeyMap();
+
+    private final Set<Edge<Stmt>> executableEdges = Sets.newSet();
+
+    private final BitSet executedNodes;
+
+    private final Deque<Edge<Stmt>> flowWorkList = new ArrayDeque<>();
+
+    private final Deque<Def> ssaWorkList = new ArrayDeque<>();
+
+    SparseCPSolver(ConstantPropagation analysis, CFG<Stmt> cfg) {
+        this.analysis = analysis;
+        this.cfg = cfg;
+        this.nodes = VisitOrder.RPO.sort(cfg, true);
+        this.indexes = Maps.newMap(nodes.size());
+        for (int i = 0; i < nodes.size(); ++i) {
+            indexes.put(nodes.get(i), i);
+        }
+        this.idoms = new int[nodes.size()];
+        this.vars = cfg.getIR().getVars()
+                .stream()
+                .filter(ConstantPropagation::canHoldInt)
+                .toList();
+        this.entryDefs = new Def[cfg.getIR().getVars().size()];
+        this.executedNodes = new BitSet(nodes.size());
+    }
+
+    DataflowResult<Stmt, CPFact> solve() {
+        computeDominators();
+        buildSSA();
+        propagate();
+        return new Result();
+    }
+
+    // ---------- SSA construction ----------
+
+    /**
+     * Computes immediate dominators by the algorithm of Cooper, Harvey
+     * and Kennedy, "A Simple, Fast Dominance Algorithm".
+     */
+    private void computeDominators() {
+        Arrays.fill(idoms, -1);
+        idoms[0] = 0;
+        boolean changed;
+        do {
+            changed = false;
+            for (int i = 1; i < nodes.size(); ++i) {
+                int newIdom = -1;
+                for (Stmt pred : cfg.getPredsOf(nodes.get(i))) {
+                    int p = indexes.get(pred);
+                    if (idoms[p] != -1) {
+                        newIdom = newIdom == -1 ? p : intersect(p, newIdom);
+                    }
+                }
+                if (idoms[i] != newIdom) {
+                    idoms[i] = newIdom;
+                    changed = true;
+                }
+            }
+        } while (changed);
+    }
+
+    private int intersect(int b1, int b2) {
+        while (b1 != b2) {
+            while (b1 > b2) {
+                b1 = idoms[b1];
+            }
+            while (b2 > b1) {
+                b2 = idoms[b2];
+            }
+        }
+        return b1;
+    }
+
+    private boolean isReachable(Stmt node) {
+        return idoms[indexes.get(node)] != -1;
+    }
+
+    @Nullable
+    private Stmt getIdom(Stmt node) {
+        int i = indexes.get(node);
+        return i == 0 || idoms[i] == -1 ? null : nodes.get(idoms[i]);
+    }
+
+    private void buildSSA() {
+        // create definitions and collect their sites
+        MultiMap<Var, Stmt> defSites = Maps.newMultiMap();
+        Set<Var> params = Set.copyOf(cfg.getIR().getParams());
+        for (Var var : vars) {
+            entryDefs[var.getIndex()] = new Def(var, cfg.getEntry(),
+                    params.contains(var) ? Value.getNAC() : Value.getUndef());
+        }
+        for (Stmt node : nodes) {
+            Var lhs = ConstantPropagation.getDefinedVar(node);
+            if (lhs != null && isReachable(node)) {
+                stmtDefs.put(node, new Def(lhs, node, Value.getUndef()));
+                defSites.put(lhs, node);
+            }
+        }
+        // place phis at iterated dominance frontiers
+        MultiMap<Stmt, Stmt> frontiers = computeDominanceFrontiers();
+        defSites.forEachSet((var, sites) -> {
+            Set<Stmt> hasPhi = Sets.newSet();
+            Deque<Stmt> workList = new ArrayDeque<>(sites);
+            while (!workList.isEmpty()) {
+                for (Stmt frontier : frontiers.get(workList.poll())) {
+                    if (hasPhi.add(frontier)) {
+                        phis.put(frontier, new Phi(var, frontier));
+                        workList.add(frontier);
+                    }
+                }
+            }
+        });
+        rename();
+    }
+
+    private MultiMap<Stmt, Stmt> computeDominanceFrontiers() {
+        MultiMap<Stmt, Stmt> frontiers = Maps.newMultiMap();
+        for (int i = 0; i < nodes.size(); ++i) {
+            Stmt node = nodes.get(i);
+            if (idoms[i] == -1 || cfg.getInDegreeOf(node) < 2) {
+                continue;
+            }
+            for (Stmt pred : cfg.getPredsOf(node)) {
+                int runner = indexes.get(pred);
+                if (idoms[runner] == -1) {
+                    continue;
+                }
+                while (runner != idoms[i]) {
+                    frontiers.put(nodes.get(runner), node);
+                    runner = idoms[runner];
+                }
+            }
+        }
+        return frontiers;
+    }
+
+    /**
+     * Links uses and phi operands to their reaching definitions by
+     * walking the dominator tree with a stack of definitions per variable.
+     */
+    private void rename() {
+        List<List<Stmt>> children = new ArrayList<>(nodes.size());
+        for (int i = 0; i < nodes.size(); ++i) {
+            children.add(new ArrayList<>());
+        }
+        for (int i = 1; i < nodes.size(); ++i) {
+            if (idoms[i] != -1) {
+                children.get(idoms[i]).add(nodes.get(i));
+            }
+        }
+        List<Deque<Def>> stacks = new ArrayList<>(entryDefs.length);
+        for (Def entryDef : entryDefs) {
+            Deque<Def> stack = new ArrayDeque<>();
+            if (entryDef != null) {
+                stack.push(entryDef);
+            }
+            stacks.add(stack);
+        }
+        // each frame is a node to enter, or a list of pushed
+        // variables to pop when leaving a node
+        Deque<Object> frames = new ArrayDeque<>();
+        frames.push(cfg.getEntry());
+        while (!frames.isEmpty()) {
+            Object frame = frames.pop();
+            if (frame instanceof Stmt node) {
+                List<Var> pushed = new ArrayList<>();
+                for (Phi phi : phis.get(node)) {
+                    stacks.get(phi.var.getIndex()).push(phi);
+                    pushed.add(phi.var);
+                }
+                for (Var use : getIntUses(node)) {
+                    Def def = stacks.get(use.getIndex()).peek();
+                    useDefs.put(node, use, def);
+                    def.stmtUsers.add(node);
+                }
+                Def def = stmtDefs.get(node);
+                if (def != null) {
+                    stacks.get(def.var.getIndex()).push(def);
+                    pushed.add(def.var);
+                }
+                for (Edge<Stmt> edge : cfg.getOutEdgesOf(node)) {
+                    for (Phi phi : phis.get(edge.getTarget())) {
+                        Def operand = stacks.get(phi.var.getIndex()).peek();
+                        phi.operands.put(edge, operand);
+                        operand.phiUsers.add(phi);
+                    }
+                }
+                frames.push(pushed);
+                children.get(indexes.get(node)).forEach(frames::push);
+            } else {
+                @SuppressWarnings("unchecked")
+                List<Var> pushed = (List<Var>) frame;
+                pushed.forEach(var -> stacks.get(var.getIndex()).pop());
+            }
+        }
+    }
+
+    private static List<Var> getIntUses(Stmt stmt) {
+        List<Var> uses = new ArrayList<>();
+        stmt.getUses().forEach(use -> {
+            if (use instanceof Var var && ConstantPropagation.canHoldInt(var)
+                    && !uses.contains(var)) {
+                uses.add(var);
+            }
+        });
+        return uses;
+    }
+
+    // ---------- propagation ----------
+
+    private void propagate() {
+        markExecuted(cfg.getEntry());
+        while (!flowWorkList.isEmpty() || !ssaWorkList.isEmpty()) {
+            while (!flowWorkList.isEmpty()) {
+                Edge<Stmt> edge = flowWorkList.poll();
+                if (executableEdges.add(edge)) {
+                    Stmt target = edge.getTarget();
+                    phis.get(target).forEach(this::visitPhi);
+                    if (!isExecuted(target)) {
+                        markExecuted(target);
+                    }
+                }
+            }
+            while (!ssaWorkList.isEmpty()) {
+                Def def = ssaWorkList.poll();
+                def.phiUsers.forEach(phi -> {
+                    if (isExecuted(phi.node)) {
+                        visitPhi(phi);
+                    }
+                });
+                def.stmtUsers.forEach(stmt -> {
+                    if (isExecuted(stmt)) {
+                        visitStmt(stmt);
+                    }
+                });
+            }
+        }
+    }
+
+    private boolean isExecuted(Stmt node) {
+        return executedNodes.get(indexes.get(node));
+    }
+
+    private void markExecuted(Stmt node) {
+        executedNodes.set(indexes.get(node));
+        visitStmt(node);
+    }
+
+    private void visitPhi(Phi phi) {
+        Value value = Value.getUndef();
+        for (Map.Entry<Edge<Stmt>, Def> entry : phi.operands.entrySet()) {
+            if (executableEdges.contains(entry.getKey())) {
+                value = analysis.meetValue(value, entry.getValue().value);
+            }
+        }
+        lower(phi, value);
+    }
+
+    private void visitStmt(Stmt stmt) {
+        Def def = stmtDefs.get(stmt);
+        if (def != null) {
+            lower(def, ConstantPropagation.evaluate(
+                    ((DefinitionStmt<?, ?>) stmt).getRValue(),
+                    var -> getUseValue(stmt, var)));
+        }
+        Value cond = null;
+        if (stmt instanceof If ifStmt) {
+            cond = ConstantPropagation.evaluate(ifStmt.getCondition(),
+                    var -> getUseValue(stmt, var));
+        } else if (stmt instanceof SwitchStmt switchStmt) {
+            cond = getUseValue(stmt, switchStmt.getVar());
+        }
+        for (Edge<Stmt> edge : cfg.getOutEdgesOf(stmt)) {
+            if (!executableEdges.contains(edge) &&
+                    (cond == null || isExecutable(edge, cond))) {
+                flowWorkList.add(edge);
+            }
+        }
+    }
+
+    private Value getUseValue(Stmt stmt, Var var) {
+        Def def = useDefs.get(stmt, var);
+        // non-integer variables are not tracked
+        return def != null ? def.value : Value.getNAC();
+    }
+
+    /**
+     * @return true if given out edge of a branch statement may be taken
+     * when the condition (or switch variable) evaluates to value.
+     */
+    private static boolean isExecutable(Edge<Stmt> edge, Value value) {
+        if (value.isNAC()) {
+            return true;
+        }
+        if (value.isUndef()) {
+            // wait until the condition is known
+            return false;
+        }
+        int constant = value.getConstant();
+        return switch (edge.getKind()) {
+            case IF_TRUE -> constant == 1;
+            case IF_FALSE -> constant == 0;
+            case SWITCH_CASE -> edge.getCaseValue() == constant;
+            case SWITCH_DEFAULT -> !((SwitchStmt) edge.getSource())
+                    .getCaseValues().contains(constant);
+            default -> true;
+        };
+    }
+
+    /**
+     * Lowers the value of given definition to its meet with value.
+     */
+    private void lower(Def def, Value value) {
+        Value newValue = analysis.meetValue(def.value, value);
+        if (!newValue.equals(def.value)) {
+            def.value = newValue;
+            ssaWorkList.add(def);
+        }
+    }
+
+    // ---------- result view ----------
+
+    /**
+     * @return the definition of var that reaches the IN of given node,
+     * or null if the node is unreachable.
+     */
+    @Nullable
+    private Def getInDef(Stmt node, Var var) {
+        if (!isReachable(node)) {
+            return null;
+        }
+        List<Stmt> path = new ArrayList<>();
+        Stmt current = node;
+        Def def;
+        while (true) {
+            def = inDefs.get(var, current);
+            if (def != null) {
+                break;
+            }
+            def = getPhi(current, var);
+            if (def != null) {
+                break;
+            }
+            Stmt idom = getIdom(current);
+            if (idom == null) { // current is entry
+                def = entryDefs[var.getIndex()];
+                break;
+            }
+            path.add(current);
+            def = stmtDefs.get(idom);
+            if (def != null && def.var.equals(var)) {
+                break;
+            }
+            current = idom;
+        }
+        for (Stmt stmt : path) {
+            inDefs.put(var, stmt, def);
+        }
+        return def;
+    }
+
+    @Nullable
+    private Phi getPhi(Stmt node, Var var) {
+        for (Phi phi : phis.get(node)) {
+            if (phi.var.equals(var)) {
+                return phi;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the value of var at the IN (or OUT) of given node.
+     */
+    private Value getValue(Stmt node, Var var, boolean isOut) {
+        if (!ConstantPropagation.canHoldInt(var) || !isExecuted(node)) {
+            return Value.getUndef();
+        }
+        Def def = isOut ? stmtDefs.get(node) : null;
+        if (def == null || !def.var.equals(var)) {
+            def = getInDef(node, var);
+        }
+        return def != null ? def.value : Value.getUndef();
+    }
+
+    /**
+     * A definition of an integer variable in SSA form, which is
+     * the entry of the method, a statement, or a {@link Phi}.
+     */
+    private static class Def {
+
+        final Var var;
+
+        final Stmt node;
+
+        Value value;
+
+        final List<Stmt> stmtUsers = new ArrayList<>();
+
+        final List<Phi> phiUsers = new ArrayList<>();
+
+        Def(Var var, Stmt node, Value value) {
+            this.var = var;
+            this.node = node;
+            this.value = value;
+        }
+    }
+
+    private static class Phi extends Def {
+
+        /**
+         * Reaching definitions along each incoming edge of the node.
+         */
+        final Map<Edge<Stmt>, Def> operands = Maps.newHybridMap();
+
+        Phi(Var var, Stmt node) {
+            super(var, node, Value.getUndef());
+        }
+    }
+
+    private class Result extends DataflowResult<Stmt, CPFact> {
+
+        @Override
+        public CPFact getInFact(Stmt node) {
+            CPFact fact = super.getInFact(node);
+            return fact != null ? fact : new LazyFact(node, false);
+        }
+
+        @Override
+        public CPFact getOutFact(Stmt node) {
+            CPFact fact = super.getOutFact(node);
+            return fact != null ? fact : new LazyFact(node, true);
+        }
+    }
+
+    /**
+     * A {@link CPFact} view of the values at a node. Single variables
+     * are looked up from the SSA values, and the whole fact is only
+     * materialized when it is iterated, compared or modified.
+     */
+    private class LazyFact extends CPFact {
+
+        private final Stmt node;
+
+        private final boolean isOut;
+
+        private boolean materialized = false;
+
+        private LazyFact(Stmt node, boolean isOut) {
+            this.node = node;
+            this.isOut = isOut;
+        }
+
+        private void materialize() {
+            if (!materialized) {
+                materialized = true;
+                for (Var var : vars) {
+                    super.update(var, getValue(node, var, isOut));
+                }
+            }
+        }
+
+        @Override
+        public Value get(Var key) {
+            return materialized ? super.get(key) : getValue(node, key, isOut);
+        }
+
+        @Override
+        public boolean update(Var key, Value value) {
+            materialize();
+            return super.update(key, value);
+        }
+
+        @Override
+        public Value remove(Var key) {
+            materialize();
+            return super.remove(key);
+        }
+
+        @Override
+        public boolean copyFrom(MapFact<Var, Value> fact) {
+            materialize();
+            return super.copyFrom(fact);
+        }
+
+        @Override
+        public CPFact copy() {
+            materialize();
+            return super.copy();
+        }
+
+        @Override
+        public void clear() {
+            materialized = true;
+            super.clear();
+        }
+
+        @Override
+        public Set<Var> keySet() {
+            materialize();
+            return super.keySet();
+        }
+
+        @Override
+        public Stream<Map.Entry<Var, Value>> entries() {
+            materialize();
+            return super.entries();
+        }
+
+        @Override
+        public void forEach(BiConsumer<Var, Value> action) {
+            materialize();
+            super.forEach(action);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o instanceof LazyFact that) {
+                o = that.copy();
+            }
+            return o instanceof CPFact && copy().equals(o);
+        }
+
+        @Override
+        public int hashCode() {
+            materialize();
+            return super.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            materialize();
+            return super.toString();
+        }
+    }
+}
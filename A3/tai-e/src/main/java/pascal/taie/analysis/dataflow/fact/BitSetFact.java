@@ -0,0 +1,246 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.fact;
+
+import pascal.taie.util.Indexable;
+import pascal.taie.util.collection.Streams;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Represents set-like data-flow facts as dense bit vectors.
+ * <p>
+ * The elements that may appear in the fact (e.g., the variables of a method)
+ * are given as a universe, and each element is represented by the bit at
+ * its {@link Indexable#getIndex()}. Thus, meet, equality check and copy of
+ * two facts over the same universe are performed word by word, without
+ * hashing or allocating set entries.
+ *
+ * @param <E> type of elements
+ */
+public class BitSetFact<E extends Indexable> extends SetFact<E> {
+
+    private static final int ADDRESS_BITS_PER_WORD = 6;
+
+    /**
+     * The elements that may be contained in this fact,
+     * where the i-th element must have index i.
+     */
+    private final List<E> universe;
+
+    private final long[] words;
+
+    /**
+     * Constructs an empty fact over the given universe.
+     */
+    public BitSetFact(List<E> universe) {
+        this(universe, new long[wordIndex(universe.size() - 1) + 1]);
+    }
+
+    private BitSetFact(List<E> universe, long[] words) {
+        super(Collections.emptySet());
+        this.universe = universe;
+        this.words = words;
+    }
+
+    private static int wordIndex(int bitIndex) {
+        return bitIndex >> ADDRESS_BITS_PER_WORD;
+    }
+
+    @Override
+    public boolean contains(E e) {
+        int index = e.getIndex();
+        return (words[wordIndex(index)] & (1L << index)) != 0;
+    }
+
+    @Override
+    public boolean add(E e) {
+        checkModifiable();
+        int index = e.getIndex();
+        int i = wordIndex(index);
+        long old = words[i];
+        words[i] |= 1L << index;
+        return words[i] != old;
+    }
+
+    @Override
+    public boolean remove(E e) {
+        checkModifiable();
+        int index = e.getIndex();
+        int i = wordIndex(index);
+        long old = words[i];
+        words[i] &= ~(1L << index);
+        return words[i] != old;
+    }
+
+    @Override
+    public boolean removeIf(Predicate<E> filter) {
+        checkModifiable();
+        boolean changed = false;
+        for (int index : indexes().toArray()) {
+            E e = universe.get(index);
+            if (filter.test(e)) {
+                changed |= remove(e);
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public boolean union(SetFact<E> other) {
+        checkModifiable();
+        if (other instanceof BitSetFact<E> that) {
+            boolean changed = false;
+            for (int i = 0; i < words.length; ++i) {
+                long old = words[i];
+                words[i] |= that.words[i];
+                changed |= words[i] != old;
+            }
+            return changed;
+        } else {
+            boolean changed = false;
+            for (E e : (Iterable<E>) other.stream()::iterator) {
+                changed |= add(e);
+            }
+            return changed;
+        }
+    }
+
+    @Override
+    public BitSetFact<E> unionWith(SetFact<E> other) {
+        BitSetFact<E> result = copy();
+        result.union(other);
+        return result;
+    }
+
+    @Override
+    public boolean intersect(SetFact<E> other) {
+        checkModifiable();
+        if (other instanceof BitSetFact<E> that) {
+            boolean changed = false;
+            for (int i = 0; i < words.length; ++i) {
+                long old = words[i];
+                words[i] &= that.words[i];
+                changed |= words[i] != old;
+            }
+            return changed;
+        } else {
+            return removeIf(e -> !other.contains(e));
+        }
+    }
+
+    @Override
+    public BitSetFact<E> intersectWith(SetFact<E> other) {
+        BitSetFact<E> result = copy();
+        result.intersect(other);
+        return result;
+    }
+
+    @Override
+    public void set(SetFact<E> other) {
+        checkModifiable();
+        if (other instanceof BitSetFact<E> that) {
+            System.arraycopy(that.words, 0, words, 0, words.length);
+        } else {
+            clear();
+            union(other);
+        }
+    }
+
+    @Override
+    public BitSetFact<E> copy() {
+        return new BitSetFact<>(universe, words.clone());
+    }
+
+    @Override
+    public void clear() {
+        checkModifiable();
+        Arrays.fill(words, 0L);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Stream<E> stream() {
+        return indexes().mapToObj(universe::get);
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (long word : words) {
+            size += Long.bitCount(word);
+        }
+        return size;
+    }
+
+    /**
+     * @return indexes of the elements in this fact, in ascending order.
+     */
+    private IntStream indexes() {
+        return IntStream.range(0, words.length).flatMap(i -> {
+            long word = words[i];
+            IntStream.Builder builder = IntStream.builder();
+            while (word != 0) {
+                builder.add((i << ADDRESS_BITS_PER_WORD) +
+                        Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+            return builder.build();
+        });
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof BitSetFact<?> that)) {
+            return false;
+        }
+        return universe == that.universe && Arrays.equals(words, that.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(words);
+    }
+
+    @Override
+    public String toString() {
+        return Streams.toString(stream());
+    }
+}
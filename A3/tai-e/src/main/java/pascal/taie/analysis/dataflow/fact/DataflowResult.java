@@ -37,6 +37,12 @@ public class DataflowResult<Node, Fact> implements NodeResult<Node, Fact> {
 
     private final Map<Node, Fact> outFacts = new LinkedHashMap<>();
 
+    /**
+     * Interner of the facts of this result, or null if the facts are not
+     * shared, see {@link #internFacts()}.
+     */
+    private FactInterner interner;
+
     /**
      * @return the flowing-in fact of given node.
      */
@@ -66,4 +72,53 @@ public class DataflowResult<Node, Fact> implements NodeResult<Node, Fact> {
     public void setOutFact(Node node, Fact fact) {
         outFacts.put(node, fact);
     }
+
+    /**
+     * Replaces the facts of this result by their canonical instances,
+     * so that equal facts are shared, see {@link FactInterner}.
+     * Afterwards, the facts returned by {@link #getInFact(Object)} and
+     * {@link #getOutFact(Object)} cannot be modified (modifying them throws
+     * {@link UnsupportedOperationException}); the clients which modify
+     * the facts should obtain them by {@link #getMutableInFact(Object)}
+     * and {@link #getMutableOutFact(Object)}.
+     */
+    public void internFacts() {
+        if (interner == null) {
+            interner = new FactInterner();
+        }
+        inFacts.replaceAll((node, fact) -> interner.intern(fact));
+        outFacts.replaceAll((node, fact) -> interner.intern(fact));
+    }
+
+    /**
+     * @return the flowing-in fact of given node, which can be modified
+     * by the caller. If the fact is shared, it is copied first.
+     */
+    public Fact getMutableInFact(Node node) {
+        Fact fact = getInFact(node);
+        if (interner != null) {
+            Fact copy = interner.unshare(fact);
+            if (copy != fact) {
+                setInFact(node, copy);
+            }
+            return copy;
+        }
+        return fact;
+    }
+
+    /**
+     * @return the flowing-out fact of given node, which can be modified
+     * by the caller. If the fact is shared, it is copied first.
+     */
+    public Fact getMutableOutFact(Node node) {
+        Fact fact = getOutFact(node);
+        if (interner != null) {
+            Fact copy = interner.unshare(fact);
+            if (copy != fact) {
+                setOutFact(node, copy);
+            }
+            return copy;
+        }
+        return fact;
+    }
 }
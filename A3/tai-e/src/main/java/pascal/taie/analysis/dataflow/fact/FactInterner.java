@@ -0,0 +1,89 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.fact;
+
+import pascal.taie.util.AnalysisException;
+import pascal.taie.util.collection.Maps;
+
+import java.util.Map;
+
+/**
+ * Maps equal data-flow facts to one shared (canonical) instance.
+ * <p>
+ * Each interner keeps its own table of canonical facts, and a
+ * {@link DataflowResult} interns its facts by an interner of its own,
+ * thus facts are only shared within the result of one method, and
+ * results of different methods, e.g., ones computed by parallel workers,
+ * never contend on a common table. The table lives as long as the
+ * result, which references all canonical facts anyway.
+ * <p>
+ * As a canonical fact may be shared by many nodes, it must not be
+ * modified, and modifying it throws {@link UnsupportedOperationException};
+ * the clients which need to modify a fact that may be interned should
+ * call {@link #unshare(Object)} first, i.e., copy on write.
+ * <p>
+ * Only {@link SetFact}s and {@link MapFact}s are supported.
+ */
+public final class FactInterner {
+
+    private final Map<Object, Object> table = Maps.newMap();
+
+    /**
+     * @return the canonical fact equal to given fact. If there is no such
+     * fact, then given fact becomes the canonical one.
+     */
+    @SuppressWarnings("unchecked")
+    public <Fact> Fact intern(Fact fact) {
+        return (Fact) table.computeIfAbsent(fact, f -> {
+            if (f instanceof SetFact<?> setFact) {
+                setFact.freeze();
+            } else if (f instanceof MapFact<?, ?> mapFact) {
+                mapFact.freeze();
+            }
+            return f;
+        });
+    }
+
+    /**
+     * @return true if given fact is a canonical (thus shared) fact.
+     */
+    public boolean isInterned(Object fact) {
+        return table.get(fact) == fact;
+    }
+
+    /**
+     * @return a copy of given fact if it is interned, otherwise the fact itself.
+     */
+    @SuppressWarnings("unchecked")
+    public <Fact> Fact unshare(Fact fact) {
+        if (!isInterned(fact)) {
+            return fact;
+        }
+        if (fact instanceof SetFact<?> setFact) {
+            return (Fact) setFact.copy();
+        } else if (fact instanceof MapFact<?, ?> mapFact) {
+            return (Fact) mapFact.copy();
+        }
+        throw new AnalysisException("Cannot copy fact " + fact);
+    }
+}
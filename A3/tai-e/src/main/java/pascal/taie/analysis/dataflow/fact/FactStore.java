@@ -0,0 +1,178 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.fact;
+
+import pascal.taie.util.collection.Sets;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static java.nio.file.StandardOpenOption.DELETE_ON_CLOSE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Stores encoded data-flow facts in a memory-mapped scratch file,
+ * so that they do not occupy the Java heap.
+ * <p>
+ * The file is mapped in segments, and each fact is appended to the last
+ * segment and addressed by its segment and position. Facts are never
+ * removed; the file is deleted when the store is closed (see also
+ * {@link #closeAll()}) or the JVM exits, and the facts cannot be read
+ * after the store is closed. This class is thread-safe.
+ */
+public class FactStore implements AutoCloseable {
+
+    private static final int SEGMENT_SIZE = 1 << 24;
+
+    /**
+     * Stores which have not been closed.
+     */
+    private static final Set<FactStore> openStores = Sets.newConcurrentSet();
+
+    private final FileChannel channel;
+
+    private final List<MappedByteBuffer> segments = new CopyOnWriteArrayList<>();
+
+    /**
+     * Size of the mapped part of the file.
+     */
+    private long mappedSize;
+
+    /**
+     * Position of the free space in the last segment.
+     */
+    private int position;
+
+    private volatile boolean closed;
+
+    /**
+     * Creates a store in a new scratch file under given directory.
+     */
+    public FactStore(Path dir) {
+        try {
+            Path file = Files.createTempFile(dir, "facts", ".bin");
+            file.toFile().deleteOnExit();
+            channel = FileChannel.open(file, READ, WRITE, DELETE_ON_CLOSE);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to create fact store", e);
+        }
+        openStores.add(this);
+    }
+
+    /**
+     * Closes all stores which have not been closed, and deletes their files.
+     * This should be called after the results stored in them are processed.
+     */
+    public static void closeAll() {
+        for (FactStore store : List.copyOf(openStores)) {
+            try {
+                store.close();
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to close fact store", e);
+            }
+        }
+    }
+
+    /**
+     * Stores given fact.
+     *
+     * @return the address of the stored fact.
+     */
+    public <Fact> long write(Fact fact, FactCodec<Fact> codec) {
+        long address = allocate(codec.sizeOf(fact));
+        codec.encode(fact, getBuffer(address));
+        return address;
+    }
+
+    /**
+     * @return a new fact decoded from given address.
+     */
+    public <Fact> Fact read(long address, FactCodec<Fact> codec) {
+        return codec.decode(getBuffer(address));
+    }
+
+    /**
+     * Reserves given number of bytes.
+     *
+     * @return the address of the reserved bytes.
+     */
+    private synchronized long allocate(int size) {
+        checkOpen();
+        if (segments.isEmpty() ||
+                segments.get(segments.size() - 1).capacity() - position < size) {
+            int segmentSize = Math.max(SEGMENT_SIZE, size);
+            try {
+                segments.add(channel.map(FileChannel.MapMode.READ_WRITE,
+                        mappedSize, segmentSize));
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to map fact store", e);
+            }
+            mappedSize += segmentSize;
+            position = 0;
+        }
+        long address = ((long) (segments.size() - 1) << 32) | position;
+        position += size;
+        return address;
+    }
+
+    /**
+     * @return a buffer positioned at given address.
+     */
+    private ByteBuffer getBuffer(long address) {
+        checkOpen();
+        ByteBuffer buffer = segments.get((int) (address >>> 32)).duplicate();
+        buffer.position((int) address);
+        return buffer;
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Fact store is closed");
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Closes this store and deletes its file.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            openStores.remove(this);
+            segments.clear();
+            channel.close();
+        }
+    }
+}
@@ -23,8 +23,12 @@
 package pascal.taie.analysis.dataflow.fact;
 
 import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
 
+import javax.annotation.Nullable;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -45,6 +49,19 @@ public class MapFact<K, V> {
      */
     protected final Map<K, V> map;
 
+    /**
+     * Keys whose values changed since the journal was last cleared,
+     * or null if this fact does not keep a journal.
+     */
+    @Nullable
+    private Set<K> journal;
+
+    /**
+     * Whether this fact is shared by a {@link FactInterner},
+     * in which case it must not be modified.
+     */
+    private boolean frozen;
+
     /**
      * Constructs a new MapFact with the same mappings as specified Map.
      *
@@ -54,6 +71,15 @@ public class MapFact<K, V> {
         this.map = Maps.newHybridMap(map);
     }
 
+    /**
+     * Constructs a fact without a backing map, for subclasses which keep
+     * the mappings in storage of their own. Such subclasses must override
+     * all public methods of this class which access {@link #map}.
+     */
+    protected MapFact() {
+        this.map = Collections.emptyMap();
+    }
+
     /**
      * @return the value to which the specified key is mapped,
      * or null if this map contains no mapping for the key.
@@ -68,7 +94,12 @@ public class MapFact<K, V> {
      * @return if the update changes this fact.
      */
     public boolean update(K key, V value) {
-        return !Objects.equals(map.put(key, value), value);
+        checkModifiable();
+        if (!Objects.equals(map.put(key, value), value)) {
+            recordChange(key);
+            return true;
+        }
+        return false;
     }
 
     /**
@@ -78,7 +109,12 @@ public class MapFact<K, V> {
      * or null if there was no mapping for key.
      */
     public V remove(K key) {
-        return map.remove(key);
+        checkModifiable();
+        V old = map.remove(key);
+        if (old != null) {
+            recordChange(key);
+        }
+        return old;
     }
 
     /**
@@ -88,7 +124,8 @@ public class MapFact<K, V> {
      */
     public boolean copyFrom(MapFact<K, V> fact) {
         boolean changed = false;
-        for (Map.Entry<K, V> entry : fact.map.entrySet()) {
+        for (Iterator<Map.Entry<K, V>> it = fact.entries().iterator(); it.hasNext(); ) {
+            Map.Entry<K, V> entry = it.next();
             changed |= update(entry.getKey(), entry.getValue());
         }
         return changed;
@@ -105,9 +142,87 @@ public class MapFact<K, V> {
      * Clears all content in this fact.
      */
     public void clear() {
+        checkModifiable();
+        if (journal != null) {
+            journal.addAll(map.keySet());
+        }
         map.clear();
     }
 
+    /**
+     * Marks this fact as shared, after which it cannot be modified.
+     */
+    void freeze() {
+        frozen = true;
+    }
+
+    /**
+     * Subclasses which modify the fact without {@link #update(Object, Object)},
+     * {@link #remove(Object)} or {@link #clear()} should call this method
+     * before modifying the fact.
+     *
+     * @throws UnsupportedOperationException if this fact is shared,
+     *                                       see {@link FactInterner}
+     */
+    protected void checkModifiable() {
+        if (frozen) {
+            throw new UnsupportedOperationException(
+                    "Cannot modify shared fact " + this);
+        }
+    }
+
+    /**
+     * Starts to keep a journal of the changed keys of this fact.
+     * All keys currently in this fact are recorded as changed.
+     */
+    public void startJournal() {
+        journal = Sets.newHybridSet(keySet());
+    }
+
+    /**
+     * Stops keeping the journal and discards it.
+     */
+    public void stopJournal() {
+        journal = null;
+    }
+
+    /**
+     * @return true if the journal records any changed keys, otherwise false.
+     */
+    public boolean hasChanges() {
+        return journal != null && !journal.isEmpty();
+    }
+
+    /**
+     * @return the keys whose values changed since the journal was
+     * last cleared, or an empty set if this fact does not keep a journal.
+     */
+    public Set<K> getChanges() {
+        return journal != null
+                ? Collections.unmodifiableSet(journal)
+                : Collections.emptySet();
+    }
+
+    /**
+     * Clears the journal, i.e., marks all changes as consumed.
+     */
+    public void clearChanges() {
+        if (journal != null) {
+            journal.clear();
+        }
+    }
+
+    /**
+     * Records that the value of given key changed.
+     * Subclasses which modify the fact without {@link #update(Object, Object)}
+     * or {@link #remove(Object)} should call this method.
+     */
+    protected void recordChange(K key) {
+        if (journal != null) {
+            journal.add(key);
+        }
+    }
+
     /**
      * @return a {@link Set} view of the keys contained in this fact.
      */
@@ -137,11 +252,17 @@ public class MapFact<K, V> {
         if (this == o) {
             return true;
         }
-        if (o == null || getClass() != o.getClass()) {
+        if (!(o instanceof MapFact<?, ?> that)) {
             return false;
         }
-        MapFact<?, ?> that = (MapFact<?, ?>) o;
-        return map.equals(that.map);
+        if (getClass() == that.getClass()) {
+            return map.equals(that.map);
+        }
+        // the other fact may keep its mappings in storage of its own,
+        // thus they are collected through the public API
+        Map<Object, Object> thatMap = Maps.newHybridMap();
+        that.forEach(thatMap::put);
+        return map.equals(thatMap);
     }
 
     @Override
@@ -0,0 +1,122 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.fact;
+
+import pascal.taie.util.collection.Maps;
+
+import java.util.Map;
+
+/**
+ * Data-flow result whose facts are stored in a {@link FactStore}
+ * instead of the heap, and decoded on demand when they are queried.
+ * <p>
+ * Each query returns a new fact decoded from the store, which can be
+ * modified by the caller but does not affect this result until it is
+ * set back by {@link #setInFact(Object, Object)} or
+ * {@link #setOutFact(Object, Object)}.
+ *
+ * @param <Node> type of nodes
+ * @param <Fact> type of data-flow facts
+ */
+public class MappedDataflowResult<Node, Fact> extends DataflowResult<Node, Fact> {
+
+    private final FactStore store;
+
+    private final FactCodec<Fact> codec;
+
+    private final Map<Node, Long> inAddresses = Maps.newMap();
+
+    private final Map<Node, Long> outAddresses = Maps.newMap();
+
+    public MappedDataflowResult(FactStore store, FactCodec<Fact> codec) {
+        this.store = store;
+        this.codec = codec;
+    }
+
+    /**
+     * Moves the facts of given nodes from a result to a new
+     * {@link MappedDataflowResult}.
+     */
+    public static <Node, Fact> MappedDataflowResult<Node, Fact> spill(
+            Iterable<Node> nodes, DataflowResult<Node, Fact> result,
+            FactStore store, FactCodec<Fact> codec) {
+        MappedDataflowResult<Node, Fact> mapped =
+                new MappedDataflowResult<>(store, codec);
+        for (Node node : nodes) {
+            mapped.setInFact(node, result.getInFact(node));
+            mapped.setOutFact(node, result.getOutFact(node));
+            // release the spilled facts, so that they can be collected
+            // while the remaining nodes are spilled
+            result.setInFact(node, null);
+            result.setOutFact(node, null);
+        }
+        return mapped;
+    }
+
+    @Override
+    public Fact getInFact(Node node) {
+        Long address = inAddresses.get(node);
+        return address != null ? store.read(address, codec) : null;
+    }
+
+    @Override
+    public void setInFact(Node node, Fact fact) {
+        if (fact != null) {
+            inAddresses.put(node, store.write(fact, codec));
+        } else {
+            inAddresses.remove(node);
+        }
+    }
+
+    @Override
+    public Fact getOutFact(Node node) {
+        Long address = outAddresses.get(node);
+        return address != null ? store.read(address, codec) : null;
+    }
+
+    @Override
+    public void setOutFact(Node node, Fact fact) {
+        if (fact != null) {
+            outAddresses.put(node, store.write(fact, codec));
+        } else {
+            outAddresses.remove(node);
+        }
+    }
+
+    /**
+     * Facts in the store are not shared, thus interning does nothing.
+     */
+    @Override
+    public void internFacts() {
+    }
+
+    @Override
+    public Fact getMutableInFact(Node node) {
+        return getInFact(node);
+    }
+
+    @Override
+    public Fact getMutableOutFact(Node node) {
+        return getOutFact(node);
+    }
+}
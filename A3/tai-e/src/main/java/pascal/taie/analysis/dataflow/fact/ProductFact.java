@@ -0,0 +1,73 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.fact;
+
+import java.util.Arrays;
+
+/**
+ * Represents data-flow facts of a product of several analyses,
+ * i.e., a tuple of the facts of each analysis.
+ */
+public class ProductFact {
+
+    private final Object[] facts;
+
+    public ProductFact(Object[] facts) {
+        this.facts = facts;
+    }
+
+    /**
+     * @return the number of facts in this product.
+     */
+    public int size() {
+        return facts.length;
+    }
+
+    /**
+     * @return the i-th fact in this product.
+     */
+    public Object get(int i) {
+        return facts[i];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ProductFact that)) {
+            return false;
+        }
+        return Arrays.equals(facts, that.facts);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(facts);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(facts);
+    }
+}
@@ -27,6 +27,7 @@ import pascal.taie.util.collection.Sets;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.Set;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
@@ -40,6 +41,12 @@ public class SetFact<E> {
 
     protected final Set<E> set;
 
+    /**
+     * Whether this fact is shared by a {@link FactInterner},
+     * in which case it must not be modified.
+     */
+    private boolean frozen;
+
     public SetFact(Collection<E> c) {
         set = Sets.newHybridSet(c);
     }
@@ -48,6 +55,16 @@ public class SetFact<E> {
         this(Collections.emptySet());
     }
 
+    /**
+     * Constructs a fact backed by given set without copying it. This is
+     * meant for subclasses which keep the elements in storage of their
+     * own and override all public methods of this class; they can pass
+     * an immutable empty set, so that no backing set is allocated.
+     */
+    protected SetFact(Set<E> set) {
+        this.set = set;
+    }
+
     /**
      * @return true if this set contains the specified element, otherwise false.
      */
@@ -61,6 +78,7 @@ public class SetFact<E> {
      * @return true if this fact changed as a result of the call, otherwise false.
      */
     public boolean add(E e) {
+        checkModifiable();
         return set.add(e);
     }
 
@@ -70,6 +88,7 @@ public class SetFact<E> {
      * @return true if an element was removed as a result of the call, otherwise false.
      */
     public boolean remove(E e) {
+        checkModifiable();
         return set.remove(e);
     }
 
@@ -80,6 +99,7 @@ public class SetFact<E> {
      * otherwise false.
      */
     public boolean removeIf(Predicate<E> filter) {
+        checkModifiable();
         return set.removeIf(filter);
     }
 
@@ -89,7 +109,16 @@ public class SetFact<E> {
      * @return true if this fact changed as a result of the call, otherwise false.
      */
     public boolean union(SetFact<E> other) {
-        return set.addAll(other.set);
+        checkModifiable();
+        if (other.getClass() == SetFact.class) {
+            return set.addAll(other.set);
+        }
+        // other representations may not keep their elements in other.set
+        boolean changed = false;
+        for (Iterator<E> it = other.stream().iterator(); it.hasNext(); ) {
+            changed |= set.add(it.next());
+        }
+        return changed;
     }
 
     /**
@@ -107,7 +136,11 @@ public class SetFact<E> {
      * @return true if this fact changed as a result of the call, otherwise false.
      */
     public boolean intersect(SetFact<E> other) {
-        return set.retainAll(other.set);
+        checkModifiable();
+        if (other.getClass() == SetFact.class) {
+            return set.retainAll(other.set);
+        }
+        return set.removeIf(e -> !other.contains(e));
     }
 
     /**
@@ -131,16 +164,40 @@ public class SetFact<E> {
      * Creates and returns a copy of this fact.
      */
     public SetFact<E> copy() {
-        return new SetFact<>(this.set);
+        SetFact<E> copy = new SetFact<>();
+        copy.set.addAll(set);
+        return copy;
     }
 
     /**
      * Clears all content in this fact.
      */
     public void clear() {
+        checkModifiable();
         set.clear();
     }
 
+    /**
+     * Marks this fact as shared, after which it cannot be modified.
+     */
+    void freeze() {
+        frozen = true;
+    }
+
+    /**
+     * Subclasses which override the modifying methods should call this
+     * method before modifying the fact.
+     *
+     * @throws UnsupportedOperationException if this fact is shared,
+     *                                       see {@link FactInterner}
+     */
+    protected void checkModifiable() {
+        if (frozen) {
+            throw new UnsupportedOperationException(
+                    "Cannot modify shared fact " + this);
+        }
+    }
+
     public boolean isEmpty() {
         return set.isEmpty();
     }
@@ -158,9 +215,10 @@ public class SetFact<E> {
         if (this == o) {
             return true;
         }
-        if (!(o instanceof SetFact<?> that)) {
+        if (o == null || getClass() != o.getClass()) {
             return false;
         }
+        SetFact<?> that = (SetFact<?>) o;
         return set.equals(that.set);
     }
 
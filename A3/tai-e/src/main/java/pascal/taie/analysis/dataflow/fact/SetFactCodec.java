@@ -0,0 +1,75 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.fact;
+
+import pascal.taie.util.Indexable;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Encodes a {@link SetFact} as the number of its elements followed
+ * by their indexes in a universe.
+ *
+ * @param <E> type of elements
+ */
+public class SetFactCodec<E extends Indexable> implements FactCodec<SetFact<E>> {
+
+    /**
+     * The elements that may be contained in the facts,
+     * where the i-th element must have index i.
+     */
+    private final List<E> universe;
+
+    /**
+     * Creates empty facts to decode into.
+     */
+    private final Supplier<SetFact<E>> factory;
+
+    public SetFactCodec(List<E> universe, Supplier<SetFact<E>> factory) {
+        this.universe = universe;
+        this.factory = factory;
+    }
+
+    @Override
+    public int sizeOf(SetFact<E> fact) {
+        return Integer.BYTES * (1 + fact.size());
+    }
+
+    @Override
+    public void encode(SetFact<E> fact, ByteBuffer buffer) {
+        buffer.putInt(fact.size());
+        fact.stream().forEach(e -> buffer.putInt(e.getIndex()));
+    }
+
+    @Override
+    public SetFact<E> decode(ByteBuffer buffer) {
+        SetFact<E> fact = factory.get();
+        int size = buffer.getInt();
+        for (int i = 0; i < size; ++i) {
+            fact.add(universe.get(buffer.getInt()));
+        }
+        return fact;
+    }
+}
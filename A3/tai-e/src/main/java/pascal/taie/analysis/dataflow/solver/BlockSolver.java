@@ -0,0 +1,342 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.solver;
+
+import pascal.taie.analysis.dataflow.analysis.DataflowAnalysis;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.Edge;
+import pascal.taie.util.collection.Maps;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Work-list solver which condenses the CFG into basic blocks, i.e.,
+ * maximal chains of nodes where each inner node has exactly one
+ * predecessor and one successor, and keeps data-flow facts only at
+ * the boundaries of the blocks.
+ * <p>
+ * The facts of the nodes inside a block are rebuilt on demand from the
+ * fact at the block boundary when they are queried from the result,
+ * and the rebuilt facts of recently queried blocks are cached.
+ */
+class BlockSolver<Node, Fact> extends Solver<Node, Fact> {
+
+    /**
+     * Maximum number of blocks whose rebuilt facts are cached by a result.
+     */
+    private static final int CACHE_SIZE = 8;
+
+    BlockSolver(DataflowAnalysis<Node, Fact> analysis, VisitOrder order) {
+        super(analysis, order);
+    }
+
+    @Override
+    public DataflowResult<Node, Fact> solve(CFG<Node> cfg) {
+        BlockResult result = new BlockResult(cfg);
+        if (analysis.isForward()) {
+            initializeForward(cfg, result);
+            doSolveForward(cfg, result);
+        } else {
+            initializeBackward(cfg, result);
+            doSolveBackward(cfg, result);
+        }
+        return result;
+    }
+
+    @Override
+    protected void initializeForward(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
+        BlockResult blockResult = (BlockResult) result;
+        for (Block block : blockResult.blocks) {
+            boolean isEntry = cfg.isEntry(block.getFirst());
+            result.setInFact(block.getFirst(), isEntry ?
+                    analysis.newBoundaryFact(cfg) : analysis.newInitialFact(cfg));
+            result.setOutFact(block.getLast(), isEntry ?
+                    analysis.newBoundaryFact(cfg) : analysis.newInitialFact(cfg));
+        }
+    }
+
+    @Override
+    protected void initializeBackward(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
+        BlockResult blockResult = (BlockResult) result;
+        for (Block block : blockResult.blocks) {
+            boolean isExit = cfg.isExit(block.getLast());
+            result.setInFact(block.getFirst(), isExit ?
+                    analysis.newBoundaryFact(cfg) : analysis.newInitialFact(cfg));
+            result.setOutFact(block.getLast(), isExit ?
+                    analysis.newBoundaryFact(cfg) : analysis.newInitialFact(cfg));
+        }
+    }
+
+    @Override
+    protected void doSolveForward(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
+        BlockResult blockResult = (BlockResult) result;
+        WorkList<Node> workList = new WorkList<>(cfg, true, order,
+                blockResult.getFirstNodes());
+        while (!workList.isEmpty()) {
+            Node first = workList.poll();
+            countPop();
+            if (cfg.isEntry(first)) {
+                continue;
+            }
+            Block block = blockResult.getBlockOf(first);
+            Fact in = result.getMutableInFact(first);
+            for (Edge<Node> inEdge : cfg.getInEdgesOf(first)) {
+                Node pred = inEdge.getSource();
+                Fact predOut = result.getOutFact(pred);
+                analysis.meetInto(transferEdge(inEdge, predOut), in);
+            }
+            Node last = block.getLast();
+            if (analysis.transferNode(last, transferInBlock(cfg, block, in, null),
+                    result.getMutableOutFact(last))) {
+                workList.addAll(cfg.getSuccsOf(last));
+            }
+        }
+    }
+
+    @Override
+    protected void doSolveBackward(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
+        BlockResult blockResult = (BlockResult) result;
+        WorkList<Node> workList = new WorkList<>(cfg, false, order,
+                blockResult.getLastNodes());
+        while (!workList.isEmpty()) {
+            Node last = workList.poll();
+            countPop();
+            if (cfg.isExit(last)) {
+                continue;
+            }
+            Block block = blockResult.getBlockOf(last);
+            Fact out = result.getMutableOutFact(last);
+            for (Edge<Node> outEdge : cfg.getOutEdgesOf(last)) {
+                Node succ = outEdge.getTarget();
+                Fact succIn = result.getInFact(succ);
+                analysis.meetInto(transferEdge(outEdge, succIn), out);
+            }
+            Node first = block.getFirst();
+            if (analysis.transferNode(first, result.getMutableInFact(first),
+                    transferInBlock(cfg, block, out, null))) {
+                workList.addAll(cfg.getPredsOf(first));
+            }
+        }
+    }
+
+    /**
+     * Transfers the fact at the block boundary (IN of the first node for
+     * forward analysis, or OUT of the last node for backward analysis)
+     * through all nodes of the block except the opposite boundary node.
+     *
+     * @param facts if not null, the IN and OUT facts of every node, except
+     *              the ones at the opposite boundary, are recorded in it
+     * @return the fact flowing into the opposite boundary node.
+     */
+    private Fact transferInBlock(CFG<Node> cfg, Block block, Fact boundaryFact,
+                                 BlockFacts facts) {
+        boolean isForward = analysis.isForward();
+        List<Node> nodes = block.nodes;
+        Fact fact = boundaryFact;
+        for (int i = 0; i < nodes.size() - 1; ++i) {
+            Node node = nodes.get(isForward ? i : nodes.size() - 1 - i);
+            Fact newFact = analysis.newInitialFact(cfg);
+            if (isForward) {
+                analysis.transferNode(node, fact, newFact);
+            } else {
+                analysis.transferNode(node, newFact, fact);
+            }
+            if (facts != null) {
+                facts.set(node, isForward ? fact : newFact,
+                        isForward ? newFact : fact);
+            }
+            // nodes inside a block are connected by a single edge
+            Edge<Node> edge = isForward
+                    ? cfg.getOutEdgesOf(node).iterator().next()
+                    : cfg.getInEdgesOf(node).iterator().next();
+            fact = transferEdge(edge, newFact);
+        }
+        return fact;
+    }
+
+    private Fact transferEdge(Edge<Node> edge, Fact fact) {
+        return analysis.needTransferEdge(edge)
+                ? analysis.transferEdge(edge, fact) : fact;
+    }
+
+    /**
+     * A maximal chain of CFG nodes without branches and joins inside.
+     */
+    private class Block {
+
+        private final List<Node> nodes = new ArrayList<>();
+
+        private Node getFirst() {
+            return nodes.get(0);
+        }
+
+        private Node getLast() {
+            return nodes.get(nodes.size() - 1);
+        }
+    }
+
+    /**
+     * IN and OUT facts of the nodes in a block, rebuilt from the facts
+     * at the block boundaries.
+     */
+    private class BlockFacts {
+
+        private final Map<Node, Fact> inFacts = Maps.newHybridMap();
+
+        private final Map<Node, Fact> outFacts = Maps.newHybridMap();
+
+        private void set(Node node, Fact in, Fact out) {
+            inFacts.put(node, in);
+            outFacts.put(node, out);
+        }
+    }
+
+    /**
+     * Data-flow result which only stores the facts at block boundaries,
+     * i.e., the IN fact of the first node and the OUT fact of the last
+     * node of each block.
+     */
+    private class BlockResult extends DataflowResult<Node, Fact> {
+
+        private final CFG<Node> cfg;
+
+        private final List<Block> blocks = new ArrayList<>();
+
+        private final Map<Node, Block> blockOf;
+
+        /**
+         * Rebuilt facts of recently queried blocks, in access order.
+         */
+        private final Map<Block, BlockFacts> cache =
+                new LinkedHashMap<>(CACHE_SIZE, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<Block, BlockFacts> eldest) {
+                        return size() > CACHE_SIZE;
+                    }
+                };
+
+        private BlockResult(CFG<Node> cfg) {
+            this.cfg = cfg;
+            this.blockOf = Maps.newMap(cfg.getNumberOfNodes());
+            buildBlocks();
+        }
+
+        private void buildBlocks() {
+            // first, create blocks starting at the nodes which
+            // obviously begin a block
+            for (Node node : cfg) {
+                if (isFirst(node)) {
+                    buildBlock(node);
+                }
+            }
+            // the remaining nodes are on cycles of single-predecessor
+            // nodes, which are unreachable from the entry
+            for (Node node : cfg) {
+                if (!blockOf.containsKey(node)) {
+                    buildBlock(node);
+                }
+            }
+        }
+
+        private boolean isFirst(Node node) {
+            if (cfg.isEntry(node) || cfg.isExit(node) ||
+                    cfg.getInDegreeOf(node) != 1) {
+                return true;
+            }
+            Node pred = cfg.getPredsOf(node).iterator().next();
+            return cfg.isEntry(pred) || cfg.getOutDegreeOf(pred) != 1;
+        }
+
+        private void buildBlock(Node first) {
+            Block block = new Block();
+            blocks.add(block);
+            Node node = first;
+            while (true) {
+                block.nodes.add(node);
+                blockOf.put(node, block);
+                if (cfg.isEntry(node) || cfg.getOutDegreeOf(node) != 1) {
+                    break;
+                }
+                Node succ = cfg.getSuccsOf(node).iterator().next();
+                if (blockOf.containsKey(succ) || isFirst(succ)) {
+                    break;
+                }
+                node = succ;
+            }
+        }
+
+        private Block getBlockOf(Node node) {
+            return blockOf.get(node);
+        }
+
+        private List<Node> getFirstNodes() {
+            return blocks.stream().map(Block::getFirst).toList();
+        }
+
+        private List<Node> getLastNodes() {
+            return blocks.stream().map(Block::getLast).toList();
+        }
+
+        @Override
+        public Fact getInFact(Node node) {
+            Block block = getBlockOf(node);
+            if (node == block.getFirst()) {
+                return super.getInFact(node);
+            }
+            return getBlockFacts(block).inFacts.get(node);
+        }
+
+        @Override
+        public Fact getOutFact(Node node) {
+            Block block = getBlockOf(node);
+            if (node == block.getLast()) {
+                return super.getOutFact(node);
+            }
+            return getBlockFacts(block).outFacts.get(node);
+        }
+
+        private BlockFacts getBlockFacts(Block block) {
+            BlockFacts facts = cache.get(block);
+            if (facts == null) {
+                facts = new BlockFacts();
+                if (analysis.isForward()) {
+                    Node last = block.getLast();
+                    Fact lastIn = transferInBlock(cfg, block,
+                            super.getInFact(block.getFirst()), facts);
+                    facts.set(last, lastIn, super.getOutFact(last));
+                } else {
+                    Node first = block.getFirst();
+                    Fact firstOut = transferInBlock(cfg, block,
+                            super.getOutFact(block.getLast()), facts);
+                    facts.set(first, super.getInFact(first), firstOut);
+                }
+                cache.put(block, facts);
+            }
+            return facts;
+        }
+    }
+}
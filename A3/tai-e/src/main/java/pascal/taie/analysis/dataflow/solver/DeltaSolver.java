@@ -0,0 +1,126 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.solver;
+
+import pascal.taie.analysis.dataflow.analysis.DeltaDataflowAnalysis;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.Edge;
+
+/**
+ * Work-list solver which propagates only the changes of the facts,
+ * see {@link DeltaDataflowAnalysis}.
+ * <p>
+ * Instead of meeting all predecessors into a node when it is visited,
+ * this solver pushes the changes of a node to its successors right after
+ * the node is transferred, and a successor is added to the work list only
+ * if it receives any changes. Since the facts only descend in the lattice,
+ * meeting the changed part of a fact is the same as meeting the whole fact.
+ */
+class DeltaSolver<Node, Fact> extends Solver<Node, Fact> {
+
+    private final DeltaDataflowAnalysis<Node, Fact> delta;
+
+    DeltaSolver(DeltaDataflowAnalysis<Node, Fact> analysis, VisitOrder order) {
+        super(analysis, order);
+        this.delta = analysis;
+    }
+
+    @Override
+    protected void doSolveForward(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
+        startJournals(cfg, result);
+        WorkList<Node> workList = new WorkList<>(cfg, analysis.isForward(), order);
+        while (!workList.isEmpty()) {
+            Node node = workList.poll();
+            countPop();
+            Fact out = result.getMutableOutFact(node);
+            if (!cfg.isEntry(node)) {
+                Fact in = result.getMutableInFact(node);
+                delta.transferChanges(node, in, out);
+                delta.clearChanges(in);
+            }
+            if (delta.hasChanges(out)) {
+                for (Edge<Node> outEdge : cfg.getOutEdgesOf(node)) {
+                    Node succ = outEdge.getTarget();
+                    Fact succIn = result.getMutableInFact(succ);
+                    if (analysis.needTransferEdge(outEdge)) {
+                        analysis.meetInto(analysis.transferEdge(outEdge, out), succIn);
+                    } else {
+                        delta.meetChangesInto(out, succIn);
+                    }
+                    if (delta.hasChanges(succIn)) {
+                        workList.add(succ);
+                    }
+                }
+                delta.clearChanges(out);
+            }
+        }
+        stopJournals(cfg, result);
+    }
+
+    @Override
+    protected void doSolveBackward(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
+        startJournals(cfg, result);
+        WorkList<Node> workList = new WorkList<>(cfg, analysis.isForward(), order);
+        while (!workList.isEmpty()) {
+            Node node = workList.poll();
+            countPop();
+            Fact in = result.getMutableInFact(node);
+            if (!cfg.isExit(node)) {
+                Fact out = result.getMutableOutFact(node);
+                delta.transferChanges(node, in, out);
+                delta.clearChanges(out);
+            }
+            if (delta.hasChanges(in)) {
+                for (Edge<Node> inEdge : cfg.getInEdgesOf(node)) {
+                    Node pred = inEdge.getSource();
+                    Fact predOut = result.getMutableOutFact(pred);
+                    if (analysis.needTransferEdge(inEdge)) {
+                        analysis.meetInto(analysis.transferEdge(inEdge, in), predOut);
+                    } else {
+                        delta.meetChangesInto(in, predOut);
+                    }
+                    if (delta.hasChanges(predOut)) {
+                        workList.add(pred);
+                    }
+                }
+                delta.clearChanges(in);
+            }
+        }
+        stopJournals(cfg, result);
+    }
+
+    private void startJournals(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
+        for (Node node : cfg) {
+            delta.startJournal(result.getMutableInFact(node));
+            delta.startJournal(result.getMutableOutFact(node));
+        }
+    }
+
+    private void stopJournals(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
+        for (Node node : cfg) {
+            delta.stopJournal(result.getInFact(node));
+            delta.stopJournal(result.getOutFact(node));
+        }
+    }
+}
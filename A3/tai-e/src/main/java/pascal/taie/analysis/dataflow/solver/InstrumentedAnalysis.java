@@ -0,0 +1,150 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.solver;
+
+import pascal.taie.analysis.dataflow.analysis.DataflowAnalysis;
+import pascal.taie.analysis.dataflow.analysis.DeltaDataflowAnalysis;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.Edge;
+
+/**
+ * Wraps a data-flow analysis and counts the calls of its transfer
+ * and meet functions into {@link SolverMetrics}.
+ */
+class InstrumentedAnalysis<Node, Fact> implements DataflowAnalysis<Node, Fact> {
+
+    private final DataflowAnalysis<Node, Fact> analysis;
+
+    private final SolverMetrics metrics;
+
+    InstrumentedAnalysis(DataflowAnalysis<Node, Fact> analysis,
+                         SolverMetrics metrics) {
+        this.analysis = analysis;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return the wrapper of given analysis, which also implements
+     * {@link DeltaDataflowAnalysis} if the analysis does.
+     */
+    static <Node, Fact> InstrumentedAnalysis<Node, Fact> of(
+            DataflowAnalysis<Node, Fact> analysis, SolverMetrics metrics) {
+        return analysis instanceof DeltaDataflowAnalysis<Node, Fact> delta
+                ? new Delta<>(delta, metrics)
+                : new InstrumentedAnalysis<>(analysis, metrics);
+    }
+
+    SolverMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public boolean isForward() {
+        return analysis.isForward();
+    }
+
+    @Override
+    public Fact newBoundaryFact(CFG<Node> cfg) {
+        return analysis.newBoundaryFact(cfg);
+    }
+
+    @Override
+    public Fact newInitialFact() {
+        return analysis.newInitialFact();
+    }
+
+    @Override
+    public Fact newInitialFact(CFG<Node> cfg) {
+        return analysis.newInitialFact(cfg);
+    }
+
+    @Override
+    public void meetInto(Fact fact, Fact target) {
+        metrics.countMeet();
+        analysis.meetInto(fact, target);
+    }
+
+    @Override
+    public boolean transferNode(Node node, Fact in, Fact out) {
+        boolean changed = analysis.transferNode(node, in, out);
+        metrics.countTransfer(changed);
+        metrics.updateFactSize(isForward() ? out : in);
+        return changed;
+    }
+
+    @Override
+    public boolean needTransferEdge(Edge<Node> edge) {
+        return analysis.needTransferEdge(edge);
+    }
+
+    @Override
+    public Fact transferEdge(Edge<Node> edge, Fact nodeFact) {
+        return analysis.transferEdge(edge, nodeFact);
+    }
+
+    private static class Delta<Node, Fact> extends InstrumentedAnalysis<Node, Fact>
+            implements DeltaDataflowAnalysis<Node, Fact> {
+
+        private final DeltaDataflowAnalysis<Node, Fact> delta;
+
+        private Delta(DeltaDataflowAnalysis<Node, Fact> analysis,
+                      SolverMetrics metrics) {
+            super(analysis, metrics);
+            this.delta = analysis;
+        }
+
+        @Override
+        public void startJournal(Fact fact) {
+            delta.startJournal(fact);
+        }
+
+        @Override
+        public void stopJournal(Fact fact) {
+            delta.stopJournal(fact);
+        }
+
+        @Override
+        public boolean hasChanges(Fact fact) {
+            return delta.hasChanges(fact);
+        }
+
+        @Override
+        public void clearChanges(Fact fact) {
+            delta.clearChanges(fact);
+        }
+
+        @Override
+        public void meetChangesInto(Fact fact, Fact target) {
+            getMetrics().countMeet();
+            delta.meetChangesInto(fact, target);
+        }
+
+        @Override
+        public boolean transferChanges(Node node, Fact in, Fact out) {
+            boolean changed = delta.transferChanges(node, in, out);
+            getMetrics().countTransfer(changed);
+            getMetrics().updateFactSize(isForward() ? out : in);
+            return changed;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.solver;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event emitted for each instrumented run of a data-flow solver.
+ */
+@Name("pascal.taie.DataflowSolve")
+@Label("Data-flow Solve")
+@Category("Tai-e")
+class SolveEvent extends Event {
+
+    @Label("Analysis")
+    String analysis;
+
+    @Label("Method")
+    String method;
+
+    @Label("Work-list Pops")
+    long pops;
+
+    @Label("Transfers")
+    long transfers;
+
+    @Label("Changed Transfers")
+    long changedTransfers;
+
+    @Label("Meets")
+    long meets;
+
+    @Label("Peak Fact Size")
+    int peakFactSize;
+
+    @Label("Wall Time")
+    @Timespan
+    long wallTime;
+}
@@ -23,8 +23,25 @@
 package pascal.taie.analysis.dataflow.solver;
 
 import pascal.taie.analysis.dataflow.analysis.DataflowAnalysis;
+import pascal.taie.analysis.dataflow.analysis.DeltaDataflowAnalysis;
 import pascal.taie.analysis.dataflow.fact.DataflowResult;
 import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.Edge;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
+import pascal.taie.util.graph.Graph;
+import pascal.taie.util.graph.MergedNode;
+import pascal.taie.util.graph.MergedSCCGraph;
+import pascal.taie.util.graph.ReverseGraph;
+import pascal.taie.util.graph.TopoSorter;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Base class for data-flow analysis solver, which provides common
@@ -37,8 +54,14 @@ public abstract class Solver<Node, Fact> {
 
     protected final DataflowAnalysis<Node, Fact> analysis;
 
-    protected Solver(DataflowAnalysis<Node, Fact> analysis) {
+    /**
+     * The order in which this solver visits CFG nodes.
+     */
+    protected final VisitOrder order;
+
+    protected Solver(DataflowAnalysis<Node, Fact> analysis, VisitOrder order) {
         this.analysis = analysis;
+        this.order = order;
     }
 
     /**
@@ -46,7 +69,42 @@ public abstract class Solver<Node, Fact> {
      */
     public static <Node, Fact> Solver<Node, Fact> makeSolver(
             DataflowAnalysis<Node, Fact> analysis) {
-        return new WorkListSolver<>(analysis);
+        return makeSolver(analysis, SolverOptions.DEFAULT);
+    }
+
+    /**
+     * Static factory method to create a new solver for given analysis,
+     * which visits CFG nodes in given order.
+     */
+    public static <Node, Fact> Solver<Node, Fact> makeSolver(
+            DataflowAnalysis<Node, Fact> analysis, VisitOrder order) {
+        return makeSolver(analysis, SolverOptions.of(order));
+    }
+
+    /**
+     * Static factory method to create a new solver for given analysis,
+     * which is selected and configured by given options.
+     */
+    public static <Node, Fact> Solver<Node, Fact> makeSolver(
+            DataflowAnalysis<Node, Fact> analysis, SolverOptions options) {
+        if (options.basicBlock()) {
+            return new BlockSolver<>(analysis, options.order());
+        } else if (options.delta()) {
+            return new DeltaSolver<>(
+                    (DeltaDataflowAnalysis<Node, Fact>) analysis, options.order());
+        } else {
+            return new WorkListSolver<>(analysis, options.order());
+        }
+    }
+
+    /**
+     * Static factory method to create a new solver for given analysis,
+     * which counts its work into given metrics.
+     */
+    public static <Node, Fact> Solver<Node, Fact> makeInstrumentedSolver(
+            DataflowAnalysis<Node, Fact> analysis, SolverOptions options,
+            SolverMetrics metrics) {
+        return makeSolver(InstrumentedAnalysis.of(analysis, metrics), options);
     }
 
     /**
@@ -61,6 +119,205 @@ public abstract class Solver<Node, Fact> {
         return result;
     }
 
+    /**
+     * Solves the analysis on given CFG component by component, and moves
+     * the facts of each strongly-connected component to given result as
+     * soon as the component is solved, as they do not change afterwards.
+     * <p>
+     * The components are solved in topological order (reverse topological
+     * order for backward analysis), and only the facts of the component
+     * being solved are kept by this solver; the facts flowing into it are
+     * read back from given result. Hence, if given result stores its facts
+     * out of the heap, the facts on the heap are bounded by the largest
+     * component, e.g., the largest loop, instead of the whole CFG.
+     * Like {@link #solve(CFG, DataflowResult, Collection, Collection)},
+     * the nodes are visited in reverse postorder inside each component,
+     * regardless of the order of this solver.
+     *
+     * @param cfg    control-flow graph where the analysis is performed on
+     * @param result the result which receives the solved facts
+     */
+    public void solve(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
+        boolean isForward = analysis.isForward();
+        Graph<Node> graph = isForward ? cfg : new ReverseGraph<>(cfg);
+        MergedSCCGraph<Node> sccGraph = new MergedSCCGraph<>(graph);
+        Map<Node, Integer> numbers = getRPONumbers(cfg);
+        for (MergedNode<Node> scc : new TopoSorter<>(sccGraph).get()) {
+            List<Node> nodes = new ArrayList<>(scc.getNodes());
+            nodes.sort(Comparator.comparingInt(numbers::get));
+            DataflowResult<Node, Fact> local = new DataflowResult<>();
+            initializeComponent(cfg, nodes, local);
+            solveComponent(cfg, graph, nodes, local, result);
+            for (Node node : nodes) {
+                result.setInFact(node, local.getInFact(node));
+                result.setOutFact(node, local.getOutFact(node));
+            }
+        }
+    }
+
+    /**
+     * Re-solves the analysis on given CFG incrementally, after the IR
+     * of the CFG has been edited since the previous result was computed.
+     * <p>
+     * The strongly-connected components of the CFG are solved one by one
+     * in topological order (reverse topological order for backward
+     * analysis). A component keeps the previous facts of its nodes,
+     * unless it contains a node affected by the edits, i.e., a changed
+     * node, a node reached by a changed edge, or a node without previous
+     * facts, or the facts flowing into it have changed. Otherwise, the
+     * component is solved locally from the initial facts, and the
+     * components after it are marked as dirty only if the facts flowing
+     * out of it differ from the previous ones. Hence, the solver stops
+     * as soon as the facts after the edits stop changing.
+     * <p>
+     * The facts of the previous result are reused by the new result, thus
+     * the previous result should not be used after this call.
+     *
+     * @param cfg          control-flow graph after the edits
+     * @param previous     the result of this analysis before the edits
+     * @param changedNodes nodes of the CFG whose statements or in-edges
+     *                     (out-edges for backward analysis) changed
+     * @param changedEdges edges of the CFG which are added by the edits,
+     *                     e.g., the edges that bypass removed nodes
+     * @return the analysis result
+     */
+    public DataflowResult<Node, Fact> solve(
+            CFG<Node> cfg, DataflowResult<Node, Fact> previous,
+            Collection<Node> changedNodes, Collection<Edge<Node>> changedEdges) {
+        boolean isForward = analysis.isForward();
+        Set<Node> seeds = Sets.newSet();
+        changedNodes.stream()
+                .filter(cfg::hasNode)
+                .forEach(seeds::add);
+        changedEdges.forEach(edge ->
+                seeds.add(isForward ? edge.getTarget() : edge.getSource()));
+        for (Node node : cfg) {
+            if (previous.getInFact(node) == null ||
+                    previous.getOutFact(node) == null) {
+                seeds.add(node);
+            }
+        }
+        Graph<Node> graph = isForward ? cfg : new ReverseGraph<>(cfg);
+        MergedSCCGraph<Node> sccGraph = new MergedSCCGraph<>(graph);
+        Map<Node, MergedNode<Node>> sccOf = Maps.newMap(cfg.getNumberOfNodes());
+        sccGraph.forEach(scc -> scc.getNodes().forEach(node -> sccOf.put(node, scc)));
+        Map<Node, Integer> numbers = getRPONumbers(cfg);
+        DataflowResult<Node, Fact> result = new DataflowResult<>();
+        Set<MergedNode<Node>> dirty = Sets.newSet();
+        seeds.forEach(node -> dirty.add(sccOf.get(node)));
+        for (MergedNode<Node> scc : new TopoSorter<>(sccGraph).get()) {
+            if (!dirty.contains(scc)) {
+                for (Node node : scc.getNodes()) {
+                    result.setInFact(node, previous.getMutableInFact(node));
+                    result.setOutFact(node, previous.getMutableOutFact(node));
+                }
+                continue;
+            }
+            List<Node> nodes = new ArrayList<>(scc.getNodes());
+            nodes.sort(Comparator.comparingInt(numbers::get));
+            initializeComponent(cfg, nodes, result);
+            solveComponent(cfg, graph, nodes, result, result);
+            for (Node node : nodes) {
+                Fact fact = isForward ? result.getOutFact(node) : result.getInFact(node);
+                Fact old = isForward ? previous.getOutFact(node) : previous.getInFact(node);
+                if (!fact.equals(old)) {
+                    dirty.addAll(sccGraph.getSuccsOf(scc));
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the numbers of the nodes of given CFG in reverse postorder,
+     * in which the nodes are solved inside each component.
+     */
+    private Map<Node, Integer> getRPONumbers(CFG<Node> cfg) {
+        Map<Node, Integer> numbers = Maps.newMap(cfg.getNumberOfNodes());
+        List<Node> sorted = VisitOrder.RPO.sort(cfg, analysis.isForward());
+        for (int i = 0; i < sorted.size(); ++i) {
+            numbers.put(sorted.get(i), i);
+        }
+        return numbers;
+    }
+
+    /**
+     * Sets the facts of given nodes in given result to the initial facts,
+     * or the boundary facts for the boundary node.
+     */
+    private void initializeComponent(CFG<Node> cfg, List<Node> nodes,
+                                     DataflowResult<Node, Fact> result) {
+        boolean isForward = analysis.isForward();
+        for (Node node : nodes) {
+            boolean isBoundary = isForward ? cfg.isEntry(node) : cfg.isExit(node);
+            result.setInFact(node, isBoundary ?
+                    analysis.newBoundaryFact(cfg) : analysis.newInitialFact(cfg));
+            result.setOutFact(node, isBoundary ?
+                    analysis.newBoundaryFact(cfg) : analysis.newInitialFact(cfg));
+        }
+    }
+
+    /**
+     * Solves the nodes of a strongly-connected component, which are sorted
+     * in reverse postorder, from their current facts in given result.
+     * The facts of the nodes before the component must have been solved,
+     * and are read from {@code solved}.
+     */
+    private void solveComponent(CFG<Node> cfg, Graph<Node> graph, List<Node> nodes,
+                                DataflowResult<Node, Fact> result,
+                                DataflowResult<Node, Fact> solved) {
+        boolean isForward = analysis.isForward();
+        Map<Node, Integer> indexes = Maps.newMap(nodes.size());
+        for (int i = 0; i < nodes.size(); ++i) {
+            indexes.put(nodes.get(i), i);
+        }
+        BitSet pending = new BitSet(nodes.size());
+        pending.set(0, nodes.size());
+        for (int i = pending.nextSetBit(0); i >= 0; i = pending.nextSetBit(0)) {
+            pending.clear(i);
+            Node node = nodes.get(i);
+            countPop();
+            if (isForward ? cfg.isEntry(node) : cfg.isExit(node)) {
+                continue;
+            }
+            boolean changed;
+            if (isForward) {
+                Fact in = result.getMutableInFact(node);
+                for (Edge<Node> inEdge : cfg.getInEdgesOf(node)) {
+                    Node pred = inEdge.getSource();
+                    Fact predOut = indexes.containsKey(pred)
+                            ? result.getOutFact(pred) : solved.getOutFact(pred);
+                    if (analysis.needTransferEdge(inEdge)) {
+                        predOut = analysis.transferEdge(inEdge, predOut);
+                    }
+                    analysis.meetInto(predOut, in);
+                }
+                changed = analysis.transferNode(node, in, result.getMutableOutFact(node));
+            } else {
+                Fact out = result.getMutableOutFact(node);
+                for (Edge<Node> outEdge : cfg.getOutEdgesOf(node)) {
+                    Node succ = outEdge.getTarget();
+                    Fact succIn = indexes.containsKey(succ)
+                            ? result.getInFact(succ) : solved.getInFact(succ);
+                    if (analysis.needTransferEdge(outEdge)) {
+                        succIn = analysis.transferEdge(outEdge, succIn);
+                    }
+                    analysis.meetInto(succIn, out);
+                }
+                changed = analysis.transferNode(node, result.getMutableInFact(node), out);
+            }
+            if (changed) {
+                for (Node succ : graph.getSuccsOf(node)) {
+                    Integer index = indexes.get(succ);
+                    if (index != null) {
+                        pending.set(index);
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Creates and initializes a new data-flow result for given CFG.
      *
@@ -77,11 +334,27 @@ public abstract class Solver<Node, Fact> {
     }
 
     protected void initializeForward(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
-        // TODO - finish me
+        Node entry = cfg.getEntry();
+        result.setInFact(entry, analysis.newBoundaryFact(cfg));
+        result.setOutFact(entry, analysis.newBoundaryFact(cfg));
+        for (Node node : cfg) {
+            if (!cfg.isEntry(node)) {
+                result.setInFact(node, analysis.newInitialFact(cfg));
+                result.setOutFact(node, analysis.newInitialFact(cfg));
+            }
+        }
     }
 
     protected void initializeBackward(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
-        // TODO - finish me
+        Node exit = cfg.getExit();
+        result.setInFact(exit, analysis.newBoundaryFact(cfg));
+        result.setOutFact(exit, analysis.newBoundaryFact(cfg));
+        for (Node node : cfg) {
+            if (!cfg.isExit(node)) {
+                result.setInFact(node, analysis.newInitialFact(cfg));
+                result.setOutFact(node, analysis.newInitialFact(cfg));
+            }
+        }
     }
 
     /**
@@ -95,6 +368,15 @@ public abstract class Solver<Node, Fact> {
         }
     }
 
+    /**
+     * Counts a pop of the work-list if this solver is instrumented.
+     */
+    protected void countPop() {
+        if (analysis instanceof InstrumentedAnalysis<Node, Fact> instrumented) {
+            instrumented.getMetrics().countPop();
+        }
+    }
+
     protected abstract void doSolveForward(CFG<Node> cfg, DataflowResult<Node, Fact> result);
 
     protected abstract void doSolveBackward(CFG<Node> cfg, DataflowResult<Node, Fact> result);
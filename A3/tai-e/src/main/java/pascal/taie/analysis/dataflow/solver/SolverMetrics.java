@@ -0,0 +1,123 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.solver;
+
+import pascal.taie.analysis.dataflow.fact.MapFact;
+import pascal.taie.analysis.dataflow.fact.SetFact;
+
+/**
+ * Counts the work done by a data-flow solver on one method for one analysis.
+ * An instance is only updated by the thread running the solver.
+ */
+public class SolverMetrics {
+
+    private final String analysis;
+
+    private final String method;
+
+    private long pops;
+
+    private long transfers;
+
+    private long changedTransfers;
+
+    private long meets;
+
+    private int peakFactSize;
+
+    private long wallTime;
+
+    public SolverMetrics(String analysis, String method) {
+        this.analysis = analysis;
+        this.method = method;
+    }
+
+    public void countPop() {
+        ++pops;
+    }
+
+    public void countTransfer(boolean changed) {
+        ++transfers;
+        if (changed) {
+            ++changedTransfers;
+        }
+    }
+
+    public void countMeet() {
+        ++meets;
+    }
+
+    /**
+     * Updates the peak fact size by the size of given fact.
+     */
+    public void updateFactSize(Object fact) {
+        int size;
+        if (fact instanceof SetFact<?> setFact) {
+            size = setFact.size();
+        } else if (fact instanceof MapFact<?, ?> mapFact) {
+            size = mapFact.keySet().size();
+        } else {
+            return;
+        }
+        peakFactSize = Math.max(peakFactSize, size);
+    }
+
+    public void addWallTime(long nanos) {
+        wallTime += nanos;
+    }
+
+    public String getAnalysis() {
+        return analysis;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public long getPops() {
+        return pops;
+    }
+
+    public long getTransfers() {
+        return transfers;
+    }
+
+    public long getChangedTransfers() {
+        return changedTransfers;
+    }
+
+    public long getMeets() {
+        return meets;
+    }
+
+    public int getPeakFactSize() {
+        return peakFactSize;
+    }
+
+    /**
+     * @return wall time of the solver in nanoseconds.
+     */
+    public long getWallTime() {
+        return wallTime;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.solver;
+
+import pascal.taie.analysis.dataflow.analysis.DataflowAnalysis;
+import pascal.taie.analysis.dataflow.analysis.DeltaDataflowAnalysis;
+import pascal.taie.config.AnalysisOptions;
+
+/**
+ * Options which select and configure the solver of a data-flow analysis,
+ * see {@link Solver#makeSolver(DataflowAnalysis, SolverOptions)}.
+ *
+ * @param order      the order in which the solver visits CFG nodes
+ * @param basicBlock whether the solver keeps facts only at the
+ *                   boundaries of basic blocks, see {@link BlockSolver}
+ * @param delta      whether the solver propagates only the changes of
+ *                   the facts, see {@link DeltaSolver}. The analysis
+ *                   must be a {@link DeltaDataflowAnalysis} in this case.
+ */
+public record SolverOptions(VisitOrder order, boolean basicBlock, boolean delta) {
+
+    /**
+     * Options of a solver which visits CFG nodes in FIFO order.
+     */
+    public static final SolverOptions DEFAULT = of(VisitOrder.FIFO);
+
+    /**
+     * @return the options of a solver which visits CFG nodes in given order.
+     */
+    public static SolverOptions of(VisitOrder order) {
+        return new SolverOptions(order, false, false);
+    }
+
+    /**
+     * @return the solver options given by analysis options "solver-order",
+     * "basic-block" and "delta".
+     */
+    public static SolverOptions of(AnalysisOptions options) {
+        return new SolverOptions(
+                VisitOrder.of(options.getString("solver-order")),
+                options.getBooleanOrDefault("basic-block", false),
+                options.getBooleanOrDefault("delta", false));
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.solver;
+
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.config.ConfigException;
+import pascal.taie.util.collection.Sets;
+import pascal.taie.util.graph.Graph;
+import pascal.taie.util.graph.ReverseGraph;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Orders in which the solvers visit the nodes of a CFG.
+ */
+public enum VisitOrder {
+
+    /**
+     * Visits the nodes in the order of {@link CFG#getNodes()}, and then
+     * (for work list solvers) in the order they are added to the work list.
+     */
+    FIFO,
+
+    /**
+     * Visits the nodes in the reverse order of {@link CFG#getNodes()}, and
+     * then (for work list solvers) the most recently added node first.
+     */
+    LIFO,
+
+    /**
+     * Visits the nodes by their reverse postorder numbers, smallest first.
+     * For backward analyses, the numbers are computed on the reversed CFG,
+     * so that a node is (except for back edges) visited after all nodes
+     * whose facts flow into it.
+     */
+    RPO;
+
+    /**
+     * @return the order of given name, or {@link #FIFO} if name is null.
+     * @throws ConfigException if the name is unknown
+     */
+    public static VisitOrder of(@Nullable String name) {
+        if (name == null) {
+            return FIFO;
+        }
+        return switch (name) {
+            case "fifo" -> FIFO;
+            case "lifo" -> LIFO;
+            case "rpo" -> RPO;
+            default -> throw new ConfigException("Unknown solver order: " + name);
+        };
+    }
+
+    /**
+     * Sorts the nodes of given CFG in this order.
+     *
+     * @param isForward whether the nodes are sorted for a forward analysis
+     */
+    public <Node> List<Node> sort(CFG<Node> cfg, boolean isForward) {
+        List<Node> nodes;
+        if (this == RPO) {
+            nodes = isForward
+                    ? reversePostOrder(cfg, cfg.getEntry())
+                    : reversePostOrder(new ReverseGraph<>(cfg), cfg.getExit());
+        } else {
+            nodes = new ArrayList<>(cfg.getNodes());
+            if (this == LIFO) {
+                Collections.reverse(nodes);
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * Computes reverse postorder of the nodes in given graph by an
+     * iterative depth-first search from root. The nodes unreachable from
+     * root are appended to the result in the order of {@link Graph#getNodes()}.
+     */
+    private static <Node> List<Node> reversePostOrder(Graph<Node> graph, Node root) {
+        List<Node> postOrder = new ArrayList<>(graph.getNumberOfNodes());
+        Set<Node> visited = Sets.newSet(graph.getNumberOfNodes());
+        Deque<Node> nodes = new ArrayDeque<>();
+        Deque<Iterator<Node>> succs = new ArrayDeque<>();
+        visited.add(root);
+        nodes.push(root);
+        succs.push(graph.getSuccsOf(root).iterator());
+        while (!nodes.isEmpty()) {
+            Iterator<Node> it = succs.peek();
+            if (it.hasNext()) {
+                Node succ = it.next();
+                if (visited.add(succ)) {
+                    nodes.push(succ);
+                    succs.push(graph.getSuccsOf(succ).iterator());
+                }
+            } else {
+                postOrder.add(nodes.pop());
+                succs.pop();
+            }
+        }
+        Collections.reverse(postOrder);
+        for (Node node : graph) {
+            if (!visited.contains(node)) {
+                postOrder.add(node);
+            }
+        }
+        return postOrder;
+    }
+}
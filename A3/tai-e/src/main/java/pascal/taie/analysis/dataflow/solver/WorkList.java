@@ -0,0 +1,146 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.solver;
+
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.util.collection.Maps;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Work list of CFG nodes, which are polled in a given {@link VisitOrder}.
+ * Each node is contained in the work list at most once.
+ * <p>
+ * The nodes are numbered once by their positions in the visit order,
+ * and for {@link VisitOrder#RPO}, the work list is a bucket queue over
+ * the numbers, i.e., it always polls the pending node of the smallest number.
+ *
+ * @param <Node> type of CFG nodes
+ */
+class WorkList<Node> {
+
+    private final VisitOrder order;
+
+    /**
+     * Nodes sorted in {@link #order}, the i-th node is numbered i.
+     */
+    private final List<Node> nodes;
+
+    private final Map<Node, Integer> numbers;
+
+    /**
+     * Numbers of the nodes in this work list.
+     */
+    private final BitSet pending;
+
+    /**
+     * Pending nodes in FIFO/LIFO order, or null for RPO.
+     */
+    private final Deque<Node> queue;
+
+    /**
+     * All pending numbers are greater than or equal to this number.
+     */
+    private int lowest;
+
+    /**
+     * Creates a work list which contains all nodes of given CFG.
+     */
+    WorkList(CFG<Node> cfg, boolean isForward, VisitOrder order) {
+        this(cfg, isForward, order, null);
+    }
+
+    /**
+     * Creates a work list which contains given nodes of the CFG,
+     * or all nodes if initial is null.
+     */
+    WorkList(CFG<Node> cfg, boolean isForward, VisitOrder order,
+             @Nullable Collection<Node> initial) {
+        this.order = order;
+        nodes = order.sort(cfg, isForward);
+        numbers = Maps.newMap(nodes.size());
+        for (int i = 0; i < nodes.size(); ++i) {
+            numbers.put(nodes.get(i), i);
+        }
+        pending = new BitSet(nodes.size());
+        queue = order == VisitOrder.RPO ? null : new ArrayDeque<>(nodes.size());
+        if (initial == null) {
+            pending.set(0, nodes.size());
+        } else {
+            initial.forEach(node -> pending.set(numbers.get(node)));
+        }
+        if (queue != null) {
+            // the initial nodes are visited in the visit order, thus they
+            // are appended even for LIFO, whose order is reversed by sort()
+            pending.stream().forEach(i -> queue.add(nodes.get(i)));
+        }
+    }
+
+    /**
+     * Adds a node to this work list if it is not pending.
+     */
+    void add(Node node) {
+        int number = numbers.get(node);
+        if (!pending.get(number)) {
+            pending.set(number);
+            lowest = Math.min(lowest, number);
+            if (queue != null) {
+                if (order == VisitOrder.LIFO) {
+                    queue.push(node);
+                } else {
+                    queue.add(node);
+                }
+            }
+        }
+    }
+
+    void addAll(Collection<Node> nodes) {
+        nodes.forEach(this::add);
+    }
+
+    /**
+     * Retrieves and removes the next node to be visited.
+     */
+    Node poll() {
+        Node node;
+        if (queue == null) {
+            lowest = pending.nextSetBit(lowest);
+            node = nodes.get(lowest);
+            pending.clear(lowest);
+        } else {
+            node = queue.poll();
+            pending.clear(numbers.get(node));
+        }
+        return node;
+    }
+
+    boolean isEmpty() {
+        return pending.isEmpty();
+    }
+}
@@ -25,20 +25,57 @@ package pascal.taie.analysis.dataflow.solver;
 import pascal.taie.analysis.dataflow.analysis.DataflowAnalysis;
 import pascal.taie.analysis.dataflow.fact.DataflowResult;
 import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.Edge;
 
 class WorkListSolver<Node, Fact> extends Solver<Node, Fact> {
 
-    WorkListSolver(DataflowAnalysis<Node, Fact> analysis) {
-        super(analysis);
+    WorkListSolver(DataflowAnalysis<Node, Fact> analysis, VisitOrder order) {
+        super(analysis, order);
     }
 
     @Override
     protected void doSolveForward(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
-        // TODO - finish me
+        WorkList<Node> workList = new WorkList<>(cfg, analysis.isForward(), order);
+        while (!workList.isEmpty()) {
+            Node node = workList.poll();
+            countPop();
+            if (cfg.isEntry(node)) {
+                continue;
+            }
+            Fact in = result.getMutableInFact(node);
+            for (Edge<Node> inEdge : cfg.getInEdgesOf(node)) {
+                Fact predOut = result.getOutFact(inEdge.getSource());
+                if (analysis.needTransferEdge(inEdge)) {
+                    predOut = analysis.transferEdge(inEdge, predOut);
+                }
+                analysis.meetInto(predOut, in);
+            }
+            if (analysis.transferNode(node, in, result.getMutableOutFact(node))) {
+                workList.addAll(cfg.getSuccsOf(node));
+            }
+        }
     }
 
     @Override
     protected void doSolveBackward(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
-        // TODO - finish me
+        WorkList<Node> workList = new WorkList<>(cfg, analysis.isForward(), order);
+        while (!workList.isEmpty()) {
+            Node node = workList.poll();
+            countPop();
+            if (cfg.isExit(node)) {
+                continue;
+            }
+            Fact out = result.getMutableOutFact(node);
+            for (Edge<Node> outEdge : cfg.getOutEdgesOf(node)) {
+                Fact succIn = result.getInFact(outEdge.getTarget());
+                if (analysis.needTransferEdge(outEdge)) {
+                    succIn = analysis.transferEdge(outEdge, succIn);
+                }
+                analysis.meetInto(succIn, out);
+            }
+            if (analysis.transferNode(node, result.getMutableInFact(node), out)) {
+                workList.addAll(cfg.getPredsOf(node));
+            }
+        }
     }
 }
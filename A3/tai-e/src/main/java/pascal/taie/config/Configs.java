@@ -0,0 +1,214 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.config;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Static utility methods for config system.
+ * <p>
+ * The analysis configs are read from the framework's
+ * {@value CONFIG}, where the entries with the same IDs as the entries
+ * in {@value OVERRIDE_CONFIG} (if present) are replaced by the latter.
+ */
+public final class Configs {
+
+    private Configs() {
+    }
+
+    /**
+     * Directory to output the results of analyses.
+     */
+    private static final File outputDir = new File("output");
+
+    static {
+        if (!outputDir.exists()) {
+            outputDir.mkdirs();
+        }
+    }
+
+    public static File getOutputDir() {
+        return outputDir;
+    }
+
+    /**
+     * File name of analysis configuration.
+     */
+    private static final String CONFIG = "tai-e-analyses.yml";
+
+    /**
+     * File name of the analysis configs which override the entries
+     * of {@link #CONFIG}.
+     */
+    private static final String OVERRIDE_CONFIG = "tai-e-analyses-override.yml";
+
+    private static final Pattern ID = Pattern.compile(
+            "^(?:- )?\\s*id:\\s*(\\S+)", Pattern.MULTILINE);
+
+    /**
+     * @return the content of analysis configuration.
+     */
+    public static InputStream getAnalysisConfig() {
+        ClassLoader loader = Configs.class.getClassLoader();
+        InputStream overrides = loader.getResourceAsStream(OVERRIDE_CONFIG);
+        if (overrides == null) {
+            return loader.getResourceAsStream(CONFIG);
+        }
+        try (InputStream base = loader.getResourceAsStream(CONFIG);
+             overrides) {
+            Map<String, String> replacements = new LinkedHashMap<>();
+            for (String entry : splitEntries(overrides)) {
+                replacements.put(getId(entry), entry);
+            }
+            StringBuilder content = new StringBuilder();
+            for (String entry : splitEntries(Objects.requireNonNull(base))) {
+                String replacement = replacements.remove(getId(entry));
+                content.append(replacement != null ? replacement : entry);
+            }
+            // entries of new analyses
+            replacements.values().forEach(content::append);
+            return new ByteArrayInputStream(
+                    content.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read analysis configs", e);
+        }
+    }
+
+    /**
+     * Splits given YAML sequence into its entries, each of which starts
+     * with a line beginning with "- ". Comments and blank lines before
+     * the first entry are dropped.
+     */
+    private static List<String> splitEntries(InputStream content) throws IOException {
+        String text = new String(content.readAllBytes(), StandardCharsets.UTF_8);
+        List<String> entries = new ArrayList<>();
+        StringBuilder entry = null;
+        for (String line : text.split("\\R", -1)) {
+            if (line.startsWith("- ")) {
+                if (entry != null) {
+                    entries.add(entry.toString());
+                }
+                entry = new StringBuilder();
+            }
+            if (entry != null) {
+                entry.append(line).append('\n');
+            }
+        }
+        if (entry != null) {
+            entries.add(entry.toString());
+        }
+        return entries;
+    }
+
+    /**
+     * @return the ID of given analysis config entry.
+     */
+    private static String getId(String entry) {
+        Matcher matcher = ID.matcher(entry);
+        if (!matcher.find()) {
+            throw new ConfigException("Missing id in analysis config:\n" + entry);
+        }
+        return matcher.group(1);
+    }
+
+    /**
+     * @return the URL of the framework's analysis configuration.
+     */
+    public static URL getAnalysisConfigURL() {
+        return Configs.class.getClassLoader().getResource(CONFIG);
+    }
+
+    /**
+     * @return default file for outputting options.
+     */
+    static File getDefaultOptions() {
+        return new File(outputDir, "options.yml");
+    }
+
+    /**
+     * @return default file for outputting analysis plan.
+     */
+    public static File getDefaultPlan() {
+        return new File(outputDir, "tai-e-plan.yml");
+    }
+
+    /**
+     * Extracts analysis id from given require item.
+     */
+    static String extractId(String require) {
+        int index = require.indexOf('(');
+        return index == -1 ? require :
+                require.substring(0, index);
+    }
+
+    /**
+     * Extracts conditions (represented by a string) from given require item.
+     */
+    static String extractConditions(String require) {
+        int index = require.indexOf('(');
+        return index == -1 ? null :
+                require.substring(index + 1, require.length() - 1);
+    }
+
+    /**
+     * Checks if the options satisfy the given conditions.
+     * Examples of conditions:
+     * a=b
+     * a=b&x=y
+     * a=b|c|d&x=y
+     * TODO: comprehensive support for conditions
+     */
+    static boolean satisfyConditions(String conditions, AnalysisOptions options) {
+        if (conditions != null) {
+            outer:
+            for (String conds : conditions.split("&")) {
+                String[] splits = conds.split("=");
+                String key = splits[0];
+                String value = splits[1];
+                if (value.contains("|")) {
+                    for (String v : value.split("\\|")) {
+                        if (options.get(key).toString().equals(v)) {
+                            continue outer;
+                        }
+                    }
+                    return false;
+                } else if (!Objects.toString(options.get(key)).equals(value)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
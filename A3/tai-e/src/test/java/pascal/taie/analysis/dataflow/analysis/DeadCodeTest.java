@@ -22,16 +22,53 @@
 
 package pascal.taie.analysis.dataflow.analysis;
 
+import org.junit.Assert;
 import org.junit.Test;
+import pascal.taie.World;
 import pascal.taie.analysis.Tests;
+import pascal.taie.analysis.dataflow.analysis.constprop.CPFact;
+import pascal.taie.analysis.dataflow.analysis.constprop.ConstantPropagation;
+import pascal.taie.analysis.dataflow.analysis.constprop.ConstantQuery;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.dataflow.fact.SetFact;
+import pascal.taie.analysis.dataflow.solver.Solver;
+import pascal.taie.analysis.dataflow.solver.SolverMetrics;
+import pascal.taie.analysis.dataflow.solver.SolverOptions;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.CFGBuilder;
+import pascal.taie.config.AnalysisConfig;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.ir.DefaultIR;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.IntLiteral;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.AssignLiteral;
+import pascal.taie.ir.stmt.Stmt;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class DeadCodeTest {
 
     void testDCD(String inputClass) {
+        testDCD(inputClass, "edge-refine:false");
+    }
+
+    void testDCD(String inputClass, String cpOpts) {
+        testDCD(inputClass, cpOpts, "strongly:false");
+    }
+
+    void testDCD(String inputClass, String cpOpts, String lvOpts) {
         Tests.test(inputClass, "src/test/resources/dataflow/deadcode/",
                 DeadCodeDetection.ID,
-                "-a", "livevar=strongly:false",
-                "-a", "constprop=edge-refine:false");
+                "-a", "livevar=" + lvOpts,
+                "-a", "constprop=" + cpOpts);
     }
 
     @Test
@@ -58,4 +95,280 @@ public class DeadCodeTest {
     public void testLoops() {
         testDCD("Loops");
     }
+
+    @Test
+    public void testUnreachableIfBranchEdgeRefine() {
+        testDCD("UnreachableIfBranch", "edge-refine:true");
+    }
+
+    @Test
+    public void testUnreachableSwitchBranchEdgeRefine() {
+        testDCD("UnreachableSwitchBranch", "edge-refine:true");
+    }
+
+    @Test
+    public void testLoopsEdgeRefineDelta() {
+        testDCD("Loops", "edge-refine:true;delta:true");
+    }
+
+    @Test
+    public void testUnreachableIfBranchSparse() {
+        testDCD("UnreachableIfBranch", "edge-refine:false;sparse:true");
+    }
+
+    @Test
+    public void testUnreachableSwitchBranchSparse() {
+        testDCD("UnreachableSwitchBranch", "edge-refine:false;sparse:true");
+    }
+
+    @Test
+    public void testLoopsSparse() {
+        testDCD("Loops", "edge-refine:false;sparse:true");
+    }
+
+    @Test
+    public void testDeadAssignmentBasicBlock() {
+        testDCD("DeadAssignment", "edge-refine:false;basic-block:true");
+    }
+
+    @Test
+    public void testUnreachableIfBranchBasicBlock() {
+        testDCD("UnreachableIfBranch", "edge-refine:false;basic-block:true");
+    }
+
+    @Test
+    public void testUnreachableSwitchBranchPacked() {
+        testDCD("UnreachableSwitchBranch", "edge-refine:false;packed:true");
+    }
+
+    @Test
+    public void testLoopsPacked() {
+        testDCD("Loops", "edge-refine:false;packed:true");
+    }
+
+    @Test
+    public void testDeadAssignmentInterned() {
+        testDCD("DeadAssignment", "edge-refine:false;intern-facts:true");
+    }
+
+    @Test
+    public void testLoopsDelta() {
+        testDCD("Loops", "edge-refine:false;delta:true");
+    }
+
+    @Test
+    public void testUnreachableSwitchBranchDeltaPacked() {
+        testDCD("UnreachableSwitchBranch", "edge-refine:false;delta:true;packed:true");
+    }
+
+    @Test
+    public void testLoopsOffHeap() {
+        testDCD("Loops", "edge-refine:false;offheap-threshold:0");
+    }
+
+    @Test
+    public void testDeadAssignmentSparseLiveness() {
+        testDCD("DeadAssignment", "edge-refine:false", "strongly:false;sparse:true");
+    }
+
+    @Test
+    public void testLoopsSparseLiveness() {
+        testDCD("Loops", "edge-refine:false", "strongly:false;sparse:true");
+    }
+
+    @Test
+    public void testLoopsMetrics() {
+        testDCD("Loops",
+                "edge-refine:false;metrics:output/constprop-metrics.csv");
+    }
+
+    @Test
+    public void testLoopsCached() throws IOException {
+        // the first run fills a fresh cache, and the second run reads
+        // the results stored by the first one; constprop and livevar
+        // are not in the plan, thus they only run on cache misses
+        Path dir = Files.createTempDirectory("deadcode-cache");
+        for (int i = 0; i < 2; ++i) {
+            Tests.test("Loops", "src/test/resources/dataflow/deadcode/",
+                    DeadCodeDetection.ID, "cache:true;cache-dir:" + dir);
+        }
+    }
+
+    @Test
+    public void testLoopsReanalyze() {
+        testDCD("Loops");
+        IR ir = World.get().getClassHierarchy()
+                .getClass("Loops").getDeclaredMethod("deadLoop").getIR();
+        // edit "z = 100" to "z = 200", which is not a jump target
+        List<Stmt> stmts = new ArrayList<>(ir.getStmts());
+        AssignLiteral oldStmt = stmts.stream()
+                .filter(s -> s instanceof AssignLiteral a &&
+                        a.getRValue() instanceof IntLiteral i && i.getValue() == 100)
+                .map(s -> (AssignLiteral) s)
+                .findFirst()
+                .orElseThrow();
+        AssignLiteral newStmt = new AssignLiteral(
+                oldStmt.getLValue(), IntLiteral.get(200));
+        newStmt.setIndex(oldStmt.getIndex());
+        newStmt.setLineNumber(oldStmt.getLineNumber());
+        stmts.set(oldStmt.getIndex(), newStmt);
+        IR edited = new DefaultIR(ir.getMethod(), ir.getThis(), ir.getParams(),
+                Set.copyOf(ir.getReturnVars()), ir.getVars(), stmts,
+                ir.getExceptionEntries());
+        CFG<Stmt> cfg = new CFGBuilder(new AnalysisConfig(CFGBuilder.ID,
+                "exception", "none", "dump", false)).analyze(edited);
+        edited.storeResult(CFGBuilder.ID, cfg);
+
+        ConstantPropagation cp = new ConstantPropagation(
+                new AnalysisConfig(ConstantPropagation.ID, "edge-refine", false));
+        DataflowResult<Stmt, CPFact> expected = cp.analyze(edited);
+        DataflowResult<Stmt, CPFact> result = cp.reanalyze(edited,
+                analyzeBefore(cp, ir, cfg), List.of(newStmt), List.of());
+        for (Stmt stmt : cfg) {
+            Assert.assertEquals(expected.getInFact(stmt), result.getInFact(stmt));
+            Assert.assertEquals(expected.getOutFact(stmt), result.getOutFact(stmt));
+        }
+
+        // the statements before the edit keep their facts and are not visited
+        SolverMetrics full = new SolverMetrics(ConstantPropagation.ID, "full");
+        Solver.makeInstrumentedSolver(cp, SolverOptions.DEFAULT, full)
+                .solve(cfg);
+        SolverMetrics incremental = new SolverMetrics(
+                ConstantPropagation.ID, "incremental");
+        Solver.makeInstrumentedSolver(cp, SolverOptions.DEFAULT, incremental)
+                .solve(cfg, analyzeBefore(cp, ir, cfg), List.of(newStmt), List.of());
+        Assert.assertTrue(incremental.getPops() < full.getPops());
+    }
+
+    /**
+     * @return the result of given analysis on the IR before the edit,
+     * whose entry and exit facts are carried over to the new CFG.
+     */
+    private static DataflowResult<Stmt, CPFact> analyzeBefore(
+            ConstantPropagation cp, IR ir, CFG<Stmt> cfg) {
+        DataflowResult<Stmt, CPFact> previous = cp.analyze(ir);
+        CFG<Stmt> oldCFG = ir.getResult(CFGBuilder.ID);
+        previous.setInFact(cfg.getEntry(), previous.getInFact(oldCFG.getEntry()));
+        previous.setOutFact(cfg.getEntry(), previous.getOutFact(oldCFG.getEntry()));
+        previous.setInFact(cfg.getExit(), previous.getInFact(oldCFG.getExit()));
+        previous.setOutFact(cfg.getExit(), previous.getOutFact(oldCFG.getExit()));
+        return previous;
+    }
+
+    @Test
+    public void testQueries() {
+        testQueries("DeadAssignment", false);
+        testQueries("UnreachableIfBranch", false);
+        testQueries("Loops", false);
+    }
+
+    @Test
+    public void testQueriesEdgeRefine() {
+        testQueries("UnreachableIfBranch", true);
+        testQueries("UnreachableSwitchBranch", true);
+    }
+
+    /**
+     * Checks that the answers of constant queries equal the IN facts of
+     * constant propagation, no matter in which order they are queried.
+     */
+    private void testQueries(String inputClass, boolean edgeRefine) {
+        testDCD(inputClass, "edge-refine:" + edgeRefine);
+        ConstantPropagation cp = new ConstantPropagation(
+                new AnalysisConfig(ConstantPropagation.ID, "edge-refine", edgeRefine));
+        for (JMethod method : World.get().getClassHierarchy()
+                .getClass(inputClass).getDeclaredMethods()) {
+            IR ir = method.getIR();
+            DataflowResult<Stmt, CPFact> expected = cp.analyze(ir);
+            List<Stmt> stmts = new ArrayList<>(ir.getStmts());
+            ConstantQuery forward = cp.newQuery(ir);
+            for (Stmt stmt : stmts) {
+                for (Var var : ir.getVars()) {
+                    Assert.assertEquals(expected.getInFact(stmt).get(var),
+                            forward.getValue(var, stmt));
+                }
+            }
+            Collections.reverse(stmts);
+            ConstantQuery backward = cp.newQuery(ir);
+            for (Stmt stmt : stmts) {
+                for (Var var : ir.getVars()) {
+                    Assert.assertEquals(expected.getInFact(stmt).get(var),
+                            backward.getValue(var, stmt));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testProduct() {
+        testDCD("UnreachableSwitchBranch");
+        ConstantPropagation cp = new ConstantPropagation(new AnalysisConfig(
+                ConstantPropagation.ID, "edge-refine", true, "intern-facts", true));
+        DefinedVariables defVars = new DefinedVariables();
+        ProductAnalysis<Stmt> product = new ProductAnalysis<>(List.of(cp, defVars));
+        for (JMethod method : World.get().getClassHierarchy()
+                .getClass("UnreachableSwitchBranch").getDeclaredMethods()) {
+            IR ir = method.getIR();
+            Map<String, DataflowResult<Stmt, ?>> results = product.analyze(ir);
+            assertSameResult(ir, cp.analyze(ir), results.get(ConstantPropagation.ID));
+            assertSameResult(ir, defVars.analyze(ir), results.get(DefinedVariables.ID));
+        }
+    }
+
+    private static void assertSameResult(
+            IR ir, DataflowResult<Stmt, ?> expected, DataflowResult<Stmt, ?> actual) {
+        CFG<Stmt> cfg = ir.getResult(CFGBuilder.ID);
+        for (Stmt stmt : cfg) {
+            Assert.assertEquals(expected.getInFact(stmt), actual.getInFact(stmt));
+            Assert.assertEquals(expected.getOutFact(stmt), actual.getOutFact(stmt));
+        }
+    }
+
+    /**
+     * Forward analysis of the variables which may have been defined.
+     */
+    private static class DefinedVariables
+            extends AbstractDataflowAnalysis<Stmt, SetFact<Var>> {
+
+        private static final String ID = "defvar";
+
+        private DefinedVariables() {
+            super(new AnalysisConfig(ID));
+        }
+
+        @Override
+        public boolean isForward() {
+            return true;
+        }
+
+        @Override
+        public SetFact<Var> newBoundaryFact(CFG<Stmt> cfg) {
+            return new SetFact<>();
+        }
+
+        @Override
+        public SetFact<Var> newInitialFact() {
+            return new SetFact<>();
+        }
+
+        @Override
+        public void meetInto(SetFact<Var> fact, SetFact<Var> target) {
+            target.union(fact);
+        }
+
+        @Override
+        public boolean transferNode(Stmt stmt, SetFact<Var> in, SetFact<Var> out) {
+            SetFact<Var> newOut = in.copy();
+            stmt.getDef().ifPresent(def -> {
+                if (def instanceof Var var) {
+                    newOut.add(var);
+                }
+            });
+            if (!newOut.equals(out)) {
+                out.set(newOut);
+                return true;
+            }
+            return false;
+        }
+    }
 }
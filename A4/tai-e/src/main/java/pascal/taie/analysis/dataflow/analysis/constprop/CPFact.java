@@ -22,12 +22,10 @@
 
 package pascal.taie.analysis.dataflow.analysis.constprop;
 
+import pascal.taie.analysis.dataflow.fact.HashTrieMap;
 import pascal.taie.analysis.dataflow.fact.MapFact;
 import pascal.taie.ir.exp.Var;
 
-import java.util.Collections;
-import java.util.Map;
-
 /**
  * Represents data facts of constant propagation, which maps variables
  * to their lattice values.
@@ -37,14 +35,17 @@ import java.util.Map;
  * it represents that the lattice value of the variable is UNDEF;
  * moreover, if we set the lattice value of a variable to UNDEF,
  * it effectively removes the variable from the CPFact.
+ * <p>
+ * The mappings are kept in a persistent {@link HashTrieMap}, thus
+ * {@link #copy()} is O(1), and the copies share their unchanged parts.
  */
 public class CPFact extends MapFact<Var, Value> {
 
     public CPFact() {
-        this(Collections.emptyMap());
+        this(new HashTrieMap<>());
     }
 
-    private CPFact(Map<Var, Value> map) {
+    private CPFact(HashTrieMap<Var, Value> map) {
         super(map);
     }
 
@@ -71,6 +72,6 @@ public class CPFact extends MapFact<Var, Value> {
 
     @Override
     public CPFact copy() {
-        return new CPFact(this.map);
+        return new CPFact((HashTrieMap<Var, Value>) this.map);
     }
 }
@@ -0,0 +1,554 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.fact;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A map backed by a persistent hash array mapped trie (HAMT).
+ * <p>
+ * The trie nodes are immutable, and an update only copies the nodes on
+ * the path from the root to the updated entry (O(log n)), so that
+ * {@link #copy()} is O(1) and a map and its copies share all unchanged
+ * subtrees. As the shape of the trie only depends on its entries,
+ * {@link #equals(Object)} on two tries compares shared subtrees by
+ * identity and only descends into the differing ones.
+ * <p>
+ * This map does not permit null keys or values.
+ *
+ * @param <K> type of keys
+ * @param <V> type of values
+ */
+public class HashTrieMap<K, V> extends AbstractMap<K, V> {
+
+    private static final int BITS = 5;
+
+    private static final int MASK = (1 << BITS) - 1;
+
+    private static final BitmapNode<?, ?> EMPTY = new BitmapNode<>(0, new Object[0]);
+
+    private Node<K, V> root;
+
+    private int size;
+
+    /**
+     * Old value of the entry touched by the last update, or null
+     * if the update added a new entry or removed nothing.
+     */
+    private V oldValue;
+
+    public HashTrieMap() {
+        this(emptyNode(), 0);
+    }
+
+    private HashTrieMap(Node<K, V> root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> Node<K, V> emptyNode() {
+        return (Node<K, V>) EMPTY;
+    }
+
+    /**
+     * @return a new array of leaves of given length.
+     */
+    @SuppressWarnings("unchecked")
+    private static <K, V> Leaf<K, V>[] newLeaves(int length) {
+        return (Leaf<K, V>[]) new Leaf<?, ?>[length];
+    }
+
+    /**
+     * @return a copy of this map in O(1) time, which shares
+     * the trie with this map.
+     */
+    public HashTrieMap<K, V> copy() {
+        return new HashTrieMap<>(root, size);
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public V get(Object key) {
+        return key == null ? null : root.get(key, hash(key), 0);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(value);
+        oldValue = null;
+        root = root.put(new Leaf<>(key, value, hash(key)), 0, this);
+        V old = oldValue;
+        oldValue = null;
+        return old;
+    }
+
+    @Override
+    public V remove(Object key) {
+        if (key == null) {
+            return null;
+        }
+        oldValue = null;
+        Node<K, V> newRoot = root.remove(key, hash(key), 0, this);
+        root = newRoot != null ? newRoot : emptyNode();
+        V old = oldValue;
+        oldValue = null;
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        root = emptyNode();
+        size = 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o instanceof HashTrieMap<?, ?> that) {
+            return size == that.size && nodeEquals(root, that.root);
+        }
+        return super.equals(o);
+    }
+
+    private static boolean nodeEquals(Object n1, Object n2) {
+        if (n1 == n2) {
+            return true;
+        }
+        if (n1 instanceof Leaf<?, ?> l1 && n2 instanceof Leaf<?, ?> l2) {
+            return l1.hash == l2.hash && l1.key.equals(l2.key)
+                    && l1.value.equals(l2.value);
+        }
+        if (n1 instanceof BitmapNode<?, ?> b1 && n2 instanceof BitmapNode<?, ?> b2) {
+            if (b1.bitmap != b2.bitmap) {
+                return false;
+            }
+            for (int i = 0; i < b1.slots.length; ++i) {
+                if (!nodeEquals(b1.slots[i], b2.slots[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (n1 instanceof CollisionNode<?, ?> c1 && n2 instanceof CollisionNode<?, ?> c2) {
+            if (c1.leaves.length != c2.leaves.length) {
+                return false;
+            }
+            for (Leaf<?, ?> leaf : c1.leaves) {
+                if (!leaf.value.equals(c2.get(leaf.key, leaf.hash, 0))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Iterates the entries of the trie at the time the iterator is created.
+     * As the trie is persistent, it is not affected by later updates.
+     */
+    private class EntryIterator implements Iterator<Map.Entry<K, V>> {
+
+        private final Deque<Object> stack = new ArrayDeque<>();
+
+        private Leaf<K, V> next;
+
+        private Leaf<K, V> last;
+
+        private EntryIterator() {
+            stack.push(root);
+            advance();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void advance() {
+            next = null;
+            while (!stack.isEmpty()) {
+                Object item = stack.pop();
+                if (item instanceof Leaf) {
+                    next = (Leaf<K, V>) item;
+                    return;
+                } else if (item instanceof BitmapNode<?, ?> node) {
+                    for (int i = node.slots.length - 1; i >= 0; --i) {
+                        stack.push(node.slots[i]);
+                    }
+                } else {
+                    Leaf<?, ?>[] leaves = ((CollisionNode<?, ?>) item).leaves;
+                    for (int i = leaves.length - 1; i >= 0; --i) {
+                        stack.push(leaves[i]);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            advance();
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            HashTrieMap.this.remove(last.key);
+            last = null;
+        }
+    }
+
+    /**
+     * An immutable entry of the trie.
+     */
+    private static final class Leaf<K, V> implements Map.Entry<K, V> {
+
+        private final K key;
+
+        private final V value;
+
+        private final int hash;
+
+        private Leaf(K key, V value, int hash) {
+            this.key = key;
+            this.value = value;
+            this.hash = hash;
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Map.Entry<?, ?> e &&
+                    key.equals(e.getKey()) && value.equals(e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ value.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    /**
+     * An immutable node of the trie.
+     */
+    private abstract static class Node<K, V> {
+
+        /**
+         * @return the value of given key, or null if absent.
+         */
+        abstract V get(Object key, int hash, int shift);
+
+        /**
+         * @return the node with given leaf put, or this node if unchanged.
+         */
+        abstract Node<K, V> put(Leaf<K, V> leaf, int shift, HashTrieMap<K, V> map);
+
+        /**
+         * @return the node with given key removed, this node if unchanged,
+         * or null if the node becomes empty.
+         */
+        abstract Node<K, V> remove(Object key, int hash, int shift, HashTrieMap<K, V> map);
+
+        /**
+         * @return the only entry of this node if it has exactly one entry,
+         * otherwise null. Such nodes are inlined into their parents,
+         * so that the shape of a trie only depends on its entries.
+         */
+        abstract Leaf<K, V> getSingleLeaf();
+    }
+
+    private static final class BitmapNode<K, V> extends Node<K, V> {
+
+        private final int bitmap;
+
+        /**
+         * Each slot is a {@link Leaf} or a {@link Node}.
+         */
+        private final Object[] slots;
+
+        private BitmapNode(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        private static int bit(int hash, int shift) {
+            return 1 << ((hash >>> shift) & MASK);
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        V get(Object key, int hash, int shift) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            Object slot = slots[index(bit)];
+            if (slot instanceof Leaf<?, ?> leaf) {
+                return leaf.hash == hash && leaf.key.equals(key)
+                        ? (V) leaf.value : null;
+            }
+            return ((Node<K, V>) slot).get(key, hash, shift + BITS);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Node<K, V> put(Leaf<K, V> leaf, int shift, HashTrieMap<K, V> map) {
+            int bit = bit(leaf.hash, shift);
+            int index = index(bit);
+            if ((bitmap & bit) == 0) {
+                Object[] newSlots = new Object[slots.length + 1];
+                System.arraycopy(slots, 0, newSlots, 0, index);
+                newSlots[index] = leaf;
+                System.arraycopy(slots, index, newSlots, index + 1, slots.length - index);
+                ++map.size;
+                return new BitmapNode<>(bitmap | bit, newSlots);
+            }
+            Object slot = slots[index];
+            Object newSlot;
+            if (slot instanceof Leaf) {
+                Leaf<K, V> old = (Leaf<K, V>) slot;
+                if (old.hash == leaf.hash && old.key.equals(leaf.key)) {
+                    map.oldValue = old.value;
+                    if (old.value.equals(leaf.value)) {
+                        return this;
+                    }
+                    newSlot = leaf;
+                } else {
+                    ++map.size;
+                    newSlot = merge(old, leaf, shift + BITS);
+                }
+            } else {
+                Node<K, V> node = (Node<K, V>) slot;
+                newSlot = node.put(leaf, shift + BITS, map);
+                if (newSlot == node) {
+                    return this;
+                }
+            }
+            return replace(index, newSlot);
+        }
+
+        private static <K, V> Node<K, V> merge(Leaf<K, V> l1, Leaf<K, V> l2, int shift) {
+            if (shift >= Integer.SIZE) {
+                Leaf<K, V>[] leaves = newLeaves(2);
+                leaves[0] = l1;
+                leaves[1] = l2;
+                return new CollisionNode<>(l1.hash, leaves);
+            }
+            int bit1 = bit(l1.hash, shift);
+            int bit2 = bit(l2.hash, shift);
+            if (bit1 == bit2) {
+                return new BitmapNode<>(bit1,
+                        new Object[]{merge(l1, l2, shift + BITS)});
+            }
+            return new BitmapNode<>(bit1 | bit2, Integer.compareUnsigned(bit1, bit2) < 0
+                    ? new Object[]{l1, l2} : new Object[]{l2, l1});
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Node<K, V> remove(Object key, int hash, int shift, HashTrieMap<K, V> map) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int index = index(bit);
+            Object slot = slots[index];
+            if (slot instanceof Leaf<?, ?> leaf) {
+                if (leaf.hash != hash || !leaf.key.equals(key)) {
+                    return this;
+                }
+                map.oldValue = (V) leaf.value;
+                --map.size;
+                if (slots.length == 1) {
+                    return null;
+                }
+                Object[] newSlots = new Object[slots.length - 1];
+                System.arraycopy(slots, 0, newSlots, 0, index);
+                System.arraycopy(slots, index + 1, newSlots, index, slots.length - index - 1);
+                return new BitmapNode<>(bitmap & ~bit, newSlots);
+            }
+            Node<K, V> node = (Node<K, V>) slot;
+            Node<K, V> newNode = node.remove(key, hash, shift + BITS, map);
+            if (newNode == node) {
+                return this;
+            }
+            // sub-nodes never become empty, as they have at least two entries
+            Leaf<K, V> single = newNode.getSingleLeaf();
+            return replace(index, single != null ? single : newNode);
+        }
+
+        private BitmapNode<K, V> replace(int index, Object newSlot) {
+            Object[] newSlots = slots.clone();
+            newSlots[index] = newSlot;
+            return new BitmapNode<>(bitmap, newSlots);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Leaf<K, V> getSingleLeaf() {
+            return slots.length == 1 && slots[0] instanceof Leaf
+                    ? (Leaf<K, V>) slots[0] : null;
+        }
+    }
+
+    /**
+     * Node of the entries whose keys have the same full hash.
+     */
+    private static final class CollisionNode<K, V> extends Node<K, V> {
+
+        private final int hash;
+
+        private final Leaf<K, V>[] leaves;
+
+        private CollisionNode(int hash, Leaf<K, V>[] leaves) {
+            this.hash = hash;
+            this.leaves = leaves;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < leaves.length; ++i) {
+                if (leaves[i].key.equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        V get(Object key, int hash, int shift) {
+            int i = indexOf(key);
+            return i != -1 ? leaves[i].value : null;
+        }
+
+        @Override
+        Node<K, V> put(Leaf<K, V> leaf, int shift, HashTrieMap<K, V> map) {
+            int i = indexOf(leaf.key);
+            Leaf<K, V>[] newLeaves;
+            if (i != -1) {
+                map.oldValue = leaves[i].value;
+                if (leaves[i].value.equals(leaf.value)) {
+                    return this;
+                }
+                newLeaves = leaves.clone();
+                newLeaves[i] = leaf;
+            } else {
+                newLeaves = Arrays.copyOf(leaves, leaves.length + 1);
+                newLeaves[leaves.length] = leaf;
+                ++map.size;
+            }
+            return new CollisionNode<>(hash, newLeaves);
+        }
+
+        @Override
+        Node<K, V> remove(Object key, int hash, int shift, HashTrieMap<K, V> map) {
+            int i = indexOf(key);
+            if (i == -1) {
+                return this;
+            }
+            map.oldValue = leaves[i].value;
+            --map.size;
+            Leaf<K, V>[] newLeaves = newLeaves(leaves.length - 1);
+            System.arraycopy(leaves, 0, newLeaves, 0, i);
+            System.arraycopy(leaves, i + 1, newLeaves, i, leaves.length - i - 1);
+            return new CollisionNode<>(hash, newLeaves);
+        }
+
+        @Override
+        Leaf<K, V> getSingleLeaf() {
+            return leaves.length == 1 ? leaves[0] : null;
+        }
+    }
+}
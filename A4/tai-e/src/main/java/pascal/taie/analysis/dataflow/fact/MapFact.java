@@ -54,6 +54,16 @@ public class MapFact<K, V> {
         this.map = Maps.newHybridMap(map);
     }
 
+    /**
+     * Constructs a new MapFact with the same mappings as specified
+     * persistent map. The trie of the map is shared in O(1) time.
+     *
+     * @param map the map whose mappings are to be placed in this map.
+     */
+    protected MapFact(HashTrieMap<K, V> map) {
+        this.map = map.copy();
+    }
+
     /**
      * @return the value to which the specified key is mapped,
      * or null if this map contains no mapping for the key.
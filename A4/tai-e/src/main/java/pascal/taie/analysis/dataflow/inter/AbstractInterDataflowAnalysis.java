@@ -25,6 +25,7 @@ package pascal.taie.analysis.dataflow.inter;
 import pascal.taie.World;
 import pascal.taie.analysis.ProgramAnalysis;
 import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.dataflow.solver.MetricsRecorder;
 import pascal.taie.analysis.graph.icfg.CallEdge;
 import pascal.taie.analysis.graph.icfg.CallToReturnEdge;
 import pascal.taie.analysis.graph.icfg.ICFG;
@@ -34,6 +35,8 @@ import pascal.taie.analysis.graph.icfg.NormalEdge;
 import pascal.taie.analysis.graph.icfg.ReturnEdge;
 import pascal.taie.config.AnalysisConfig;
 
+import java.util.Collection;
+
 /**
  * Provides common functionalities for {@link InterDataflowAnalysis} implementations.
  *
@@ -67,6 +70,19 @@ public abstract class AbstractInterDataflowAnalysis<Method, Node, Fact>
     protected void finish() {
     }
 
+    /**
+     * @return the index of given node in its containing method, which is
+     * used by the solver to number the nodes of the ICFG densely.
+     */
+    protected abstract int getIndexOf(Node node);
+
+    /**
+     * @return the successors of given node in the CFG of its containing
+     * method, which are used by the solver to order the nodes of each
+     * method in reverse post-order without querying the edges of the ICFG.
+     */
+    protected abstract Collection<Node> getIntraSuccsOf(Node node);
+
     /**
      * Dispatches {@code Node} to specific node transfer functions for
      * call nodes and non-call nodes.
@@ -121,8 +137,19 @@ public abstract class AbstractInterDataflowAnalysis<Method, Node, Fact>
     public Object analyze() {
         icfg = World.get().getResult(ICFGBuilder.ID);
         initialize();
-        solver = new InterSolver<>(this, icfg);
+        String metricsFile = getOptions().getString("metrics");
+        MetricsRecorder recorder = metricsFile == null
+                ? null
+                : MetricsRecorder.of(metricsFile,
+                        getOptions().get("metrics-top") instanceof Integer top
+                                ? top : MetricsRecorder.DEFAULT_TOP);
+        solver = new InterSolver<>(this, icfg, this::getIndexOf,
+                this::getIntraSuccsOf, getId(), recorder,
+                getOptions().getBooleanOrDefault("parallel", false));
         DataflowResult<Node, Fact> result = solver.solve();
+        if (recorder != null) {
+            recorder.dump();
+        }
         finish();
         return result;
     }
@@ -0,0 +1,318 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.inter;
+
+import pascal.taie.analysis.dataflow.analysis.constprop.CPFact;
+import pascal.taie.analysis.dataflow.analysis.constprop.ConstantPropagation;
+import pascal.taie.analysis.dataflow.analysis.constprop.Value;
+import pascal.taie.analysis.graph.callgraph.CallGraph;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.CFGBuilder;
+import pascal.taie.analysis.graph.cfg.Edge;
+import pascal.taie.analysis.graph.icfg.ICFG;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.InvokeExp;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.SetQueue;
+import pascal.taie.util.collection.Sets;
+import pascal.taie.util.graph.MergedNode;
+import pascal.taie.util.graph.MergedSCCGraph;
+import pascal.taie.util.graph.TopoSorter;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Return-value summaries of methods for {@link InterConstantPropagation}.
+ * <p>
+ * The summary of a method maps the values of its parameters to the value
+ * it returns, and is memoized per abstract argument vector. A summary is
+ * computed by an intra-procedural pass over the method, where the return
+ * values of the calls in the method are obtained from the summaries of the
+ * callees. Summaries of recursive calls start from UNDEF and are iterated
+ * until none of them changes.
+ * <p>
+ * Final summaries are shared by the threads of the solver; the state of a
+ * summary being computed is local to the {@link Computation}, so that no
+ * lock is held while a method body is analyzed.
+ */
+class CPSummaries {
+
+    /**
+     * Maximum number of argument vectors memoized for a method, beyond
+     * which the arguments are widened to NAC.
+     */
+    private static final int MAX_CONTEXTS = 16;
+
+    /**
+     * Maximum number of nested summaries in a computation, beyond which
+     * the call is given NAC.
+     */
+    private static final int MAX_DEPTH = 64;
+
+    private final InterConstantPropagation analysis;
+
+    private final ICFG<JMethod, Stmt> icfg;
+
+    /**
+     * Summaries which are final.
+     */
+    private final Map<JMethod, Map<List<Value>, Value>> summaries =
+            Maps.newConcurrentMap();
+
+    CPSummaries(InterConstantPropagation analysis, ICFG<JMethod, Stmt> icfg) {
+        this.analysis = analysis;
+        this.icfg = icfg;
+    }
+
+    /**
+     * Computes the summaries of the methods in given call graph for
+     * unknown (NAC) arguments, bottom-up over its SCCs, so that callees
+     * are summarized before their callers.
+     */
+    void build(CallGraph<Invoke, JMethod> callGraph) {
+        List<MergedNode<JMethod>> sccs =
+                new TopoSorter<>(new MergedSCCGraph<>(callGraph), true).get();
+        for (MergedNode<JMethod> scc : sccs) {
+            for (JMethod method : scc.getNodes()) {
+                if (!method.isAbstract() && !method.isNative()) {
+                    new Computation().summarize(method, widen(method));
+                }
+            }
+        }
+    }
+
+    /**
+     * Transfers the OUT fact of given call site to its return site:
+     * the variable receiving the result of the call is given the meet
+     * of the summaries of the callees for the arguments in the fact.
+     */
+    CPFact transferCallToReturn(Invoke callSite, CPFact out) {
+        return transferCallToReturn(callSite, out, null);
+    }
+
+    /**
+     * @param computation the computation in which the call site is
+     *                    analyzed, or {@code null} if the call site is
+     *                    analyzed by the solver.
+     */
+    private CPFact transferCallToReturn(Invoke callSite, CPFact out,
+                                        @Nullable Computation computation) {
+        CPFact result = out.copy();
+        Var lhs = callSite.getLValue();
+        if (lhs != null && ConstantPropagation.canHoldInt(lhs)) {
+            InvokeExp invokeExp = callSite.getInvokeExp();
+            Value value = Value.getUndef();
+            for (JMethod callee : icfg.getCalleesOf(callSite)) {
+                List<Var> params = callee.getIR().getParams();
+                List<Value> args = new ArrayList<>(params.size());
+                for (int i = 0; i < params.size(); ++i) {
+                    args.add(ConstantPropagation.canHoldInt(params.get(i))
+                            ? out.get(invokeExp.getArg(i)) : Value.getUndef());
+                }
+                Value summary = getSummary(callee, args);
+                if (summary == null) {
+                    if (computation == null) {
+                        computation = new Computation();
+                    }
+                    summary = computation.summarize(callee, args);
+                }
+                value = analysis.meetValue(value, summary);
+            }
+            result.update(lhs, value);
+        }
+        return result;
+    }
+
+    /**
+     * @return the final summary of given method for given arguments,
+     * or {@code null} if it has not been computed.
+     */
+    @Nullable
+    private Value getSummary(JMethod method, List<Value> args) {
+        Map<List<Value>, Value> done = summaries.get(method);
+        return done != null ? done.get(args) : null;
+    }
+
+    /**
+     * @return the argument vector where all int parameters are NAC.
+     */
+    private static List<Value> widen(JMethod method) {
+        List<Var> params = method.getIR().getParams();
+        List<Value> args = new ArrayList<>(params.size());
+        for (Var param : params) {
+            args.add(ConstantPropagation.canHoldInt(param)
+                    ? Value.getNAC() : Value.getUndef());
+        }
+        return args;
+    }
+
+    /**
+     * Computation of a summary, together with the summaries it depends on.
+     * When it finishes, the summaries it computed are published as final;
+     * if two computations race for the same summary, the first one wins.
+     */
+    private class Computation {
+
+        /**
+         * Summaries which are being iterated, see {@link #summarize}.
+         */
+        private final Map<JMethod, Map<List<Value>, Value>> provisional = Maps.newMap();
+
+        /**
+         * Summaries evaluated in current round of iteration.
+         */
+        private final Map<JMethod, Set<List<Value>>> evaluated = Maps.newMap();
+
+        /**
+         * Whether any provisional summary changed in current round.
+         */
+        private boolean changed;
+
+        /**
+         * Number of summaries being computed.
+         */
+        private int depth = 0;
+
+        /**
+         * @return the summary of given method for given arguments.
+         */
+        private Value summarize(JMethod method, List<Value> args) {
+            Map<List<Value>, Value> done = summaries.get(method);
+            Value value = done != null ? done.get(args) : null;
+            if (value != null) {
+                return value;
+            }
+            Map<List<Value>, Value> pending = provisional.get(method);
+            int contexts = (done != null ? done.size() : 0) +
+                    (pending != null ? pending.size() : 0);
+            if (contexts >= MAX_CONTEXTS && (pending == null ||
+                    !pending.containsKey(args))) {
+                List<Value> widened = widen(method);
+                if (!widened.equals(args)) {
+                    return summarize(method, widened);
+                }
+            }
+            if (depth > 0) {
+                if (depth >= MAX_DEPTH) {
+                    // too deep: give up on this call, which is sound
+                    // and keeps the stack bounded
+                    return Value.getNAC();
+                }
+                // nested in the computation of another summary: evaluate
+                // each summary at most once per round, and let the outermost
+                // summary repeat the rounds until nothing changes
+                if (!evaluated.computeIfAbsent(method, m -> Sets.newSet())
+                        .add(args)) {
+                    return pending != null
+                            ? pending.getOrDefault(args, Value.getUndef())
+                            : Value.getUndef();
+                }
+                return update(method, args);
+            }
+            do {
+                changed = false;
+                evaluated.clear();
+                evaluated.computeIfAbsent(method, m -> Sets.newSet()).add(args);
+                value = update(method, args);
+            } while (changed);
+            provisional.forEach((m, values) -> {
+                Map<List<Value>, Value> table = summaries.computeIfAbsent(
+                        m, k -> Maps.newConcurrentMap());
+                values.forEach(table::putIfAbsent);
+            });
+            provisional.clear();
+            evaluated.clear();
+            return getSummary(method, args);
+        }
+
+        /**
+         * Computes the summary of given method for given arguments, and
+         * records it as provisional.
+         */
+        private Value update(JMethod method, List<Value> args) {
+            ++depth;
+            Value value = compute(method, args);
+            --depth;
+            Value old = provisional.computeIfAbsent(method, m -> Maps.newMap())
+                    .put(args, value);
+            if (!value.equals(old)) {
+                changed = true;
+            }
+            return value;
+        }
+
+        /**
+         * Analyzes the body of given method for given arguments.
+         *
+         * @return the meet of the values of the return variables.
+         */
+        private Value compute(JMethod method, List<Value> args) {
+            IR ir = method.getIR();
+            CFG<Stmt> cfg = ir.getResult(CFGBuilder.ID);
+            Map<Stmt, CPFact> inFacts = Maps.newMap(cfg.getNumberOfNodes());
+            Map<Stmt, CPFact> outFacts = Maps.newMap(cfg.getNumberOfNodes());
+            Queue<Stmt> workList = new SetQueue<>();
+            for (Stmt node : cfg) {
+                inFacts.put(node, analysis.newInitialFact());
+                outFacts.put(node, analysis.newInitialFact());
+                workList.add(node);
+            }
+            CPFact entryIn = inFacts.get(cfg.getEntry());
+            for (int i = 0; i < ir.getParams().size(); ++i) {
+                Var param = ir.getParam(i);
+                if (ConstantPropagation.canHoldInt(param)) {
+                    entryIn.update(param, args.get(i));
+                }
+            }
+            while (!workList.isEmpty()) {
+                Stmt node = workList.poll();
+                CPFact in = inFacts.get(node);
+                for (Edge<Stmt> edge : cfg.getInEdgesOf(node)) {
+                    Stmt pred = edge.getSource();
+                    CPFact predOut = outFacts.get(pred);
+                    analysis.meetInto(icfg.isCallSite(pred) && !edge.isExceptional()
+                            ? transferCallToReturn((Invoke) pred, predOut, this)
+                            : predOut, in);
+                }
+                if (analysis.transferNode(node, in, outFacts.get(node))) {
+                    workList.addAll(cfg.getSuccsOf(node));
+                }
+            }
+            CPFact exitIn = inFacts.get(cfg.getExit());
+            Value value = Value.getUndef();
+            for (Var ret : ir.getReturnVars()) {
+                value = analysis.meetValue(value, exitIn.get(ret));
+            }
+            return value;
+        }
+    }
+}
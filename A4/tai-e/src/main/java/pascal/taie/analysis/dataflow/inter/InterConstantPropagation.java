@@ -22,9 +22,12 @@
 
 package pascal.taie.analysis.dataflow.inter;
 
+import pascal.taie.World;
 import pascal.taie.analysis.dataflow.analysis.constprop.CPFact;
 import pascal.taie.analysis.dataflow.analysis.constprop.ConstantPropagation;
 import pascal.taie.analysis.dataflow.analysis.constprop.Value;
+import pascal.taie.analysis.graph.callgraph.CallGraph;
+import pascal.taie.analysis.graph.callgraph.CallGraphBuilder;
 import pascal.taie.analysis.graph.cfg.CFG;
 import pascal.taie.analysis.graph.cfg.CFGBuilder;
 import pascal.taie.analysis.graph.icfg.CallEdge;
@@ -39,9 +42,16 @@ import pascal.taie.ir.exp.RValue;
 import pascal.taie.ir.exp.Var;
 import pascal.taie.ir.stmt.DefinitionStmt;
 import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.LoadField;
 import pascal.taie.ir.stmt.Return;
 import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.ir.stmt.StoreField;
+import pascal.taie.language.classes.JField;
 import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.classes.Modifier;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.MultiMap;
+import pascal.taie.util.collection.Sets;
 
 import javax.swing.text.rtf.RTFEditorKit;
 import java.util.*;
@@ -59,9 +69,139 @@ public class InterConstantPropagation extends
 
     private final ConstantPropagation cp;
 
+    /**
+     * Whether to obtain the results of calls from {@link CPSummaries}
+     * instead of propagating them along return edges.
+     */
+    private final boolean summary;
+
+    private CPSummaries summaries;
+
+    /**
+     * Whether to propagate the values of static fields from their stores
+     * to their loads, see {@link #staticValues}.
+     */
+    private final boolean staticField;
+
+    /**
+     * Value of each static field, i.e., the meet of the default value of
+     * the field and the values written by all static stores to the field
+     * which have been transferred. The default value is left out only for
+     * a field which is written by its static initializer alone, as the
+     * initializer runs before the field is read elsewhere.
+     * This is a side channel of the ICFG facts: when the value of a field
+     * changes, the static loads of the field are added to the work-list.
+     */
+    private Map<JField, Value> staticValues;
+
+    /**
+     * Static fields which may be written by code outside the ICFG, e.g.,
+     * by a static initializer which is not reachable, by an unreachable
+     * method, or by the library. Loads of these fields read NAC.
+     */
+    private Set<JField> untrackedFields;
+
+    /**
+     * Static loads of each field in the ICFG.
+     */
+    private MultiMap<JField, LoadField> staticLoads;
+
     public InterConstantPropagation(AnalysisConfig config) {
         super(config);
         cp = new ConstantPropagation(new AnalysisConfig(ConstantPropagation.ID));
+        summary = getOptions().getBooleanOrDefault("summary", false);
+        staticField = getOptions().getBooleanOrDefault("static-field", false);
+    }
+
+    @Override
+    protected void initialize() {
+        if (summary) {
+            summaries = new CPSummaries(this, icfg);
+            summaries.build(World.get().getResult(CallGraphBuilder.ID));
+        }
+        if (staticField) {
+            initializeStaticFields(World.get().getResult(CallGraphBuilder.ID));
+        }
+    }
+
+    /**
+     * Collects the static loads in the ICFG, and decides which of the
+     * loaded fields can be tracked: a field is tracked if it is declared
+     * in an application class and all its writers are in given call graph.
+     */
+    private void initializeStaticFields(CallGraph<Invoke, JMethod> callGraph) {
+        staticValues = Maps.newConcurrentMap();
+        staticLoads = Maps.newMultiMap();
+        untrackedFields = Sets.newSet();
+        for (Stmt stmt : icfg) {
+            if (stmt instanceof LoadField load && load.isStatic()) {
+                JField field = load.getFieldRef().resolveNullable();
+                if (field != null) {
+                    staticLoads.put(field, load);
+                }
+            }
+        }
+        // writers of the loaded fields in the whole application,
+        // including the methods which are not reachable
+        MultiMap<JField, JMethod> writers = Maps.newMultiMap();
+        World.get().getClassHierarchy().applicationClasses()
+                .flatMap(c -> c.getDeclaredMethods().stream())
+                .filter(m -> !m.isAbstract() && !m.isNative())
+                .forEach(m -> m.getIR().forEach(stmt -> {
+                    if (stmt instanceof StoreField store && store.isStatic()) {
+                        JField field = store.getFieldRef().resolveNullable();
+                        if (field != null && staticLoads.containsKey(field)) {
+                            writers.put(field, m);
+                        }
+                    }
+                }));
+        for (JField field : staticLoads.keySet()) {
+            Set<JMethod> methods = writers.get(field);
+            if (!field.getDeclaringClass().isApplication() ||
+                    !methods.stream().allMatch(callGraph::contains) ||
+                    // a final field without writers is initialized by its
+                    // ConstantValue attribute, which is not in the IR
+                    (methods.isEmpty() &&
+                            Modifier.hasFinal(field.getModifiers()))) {
+                untrackedFields.add(field);
+            } else if (!isInitializedByClinit(field, methods)) {
+                // the field may be read before any of its stores
+                staticValues.put(field, Value.makeConstant(0));
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if given field is written only by the static
+     * initializer of its declaring class, and is not read by any static
+     * initializer.
+     */
+    private boolean isInitializedByClinit(JField field, Set<JMethod> writers) {
+        return !writers.isEmpty() && writers.stream().allMatch(m ->
+                m.isStaticInitializer() &&
+                        m.getDeclaringClass() == field.getDeclaringClass()) &&
+                staticLoads.get(field).stream().noneMatch(load ->
+                        icfg.getContainingMethodOf(load).isStaticInitializer());
+    }
+
+    @Override
+    protected void finish() {
+        summaries = null;
+        staticValues = null;
+        untrackedFields = null;
+        staticLoads = null;
+    }
+
+    @Override
+    protected int getIndexOf(Stmt stmt) {
+        return stmt.getIndex();
+    }
+
+    @Override
+    protected Collection<Stmt> getIntraSuccsOf(Stmt stmt) {
+        CFG<Stmt> cfg = icfg.getContainingMethodOf(stmt)
+                .getIR().getResult(CFGBuilder.ID);
+        return cfg.getSuccsOf(stmt);
     }
 
     @Override
@@ -85,6 +225,10 @@ public class InterConstantPropagation extends
         cp.meetInto(fact, target);
     }
 
+    Value meetValue(Value v1, Value v2) {
+        return cp.meetValue(v1, v2);
+    }
+
     @Override
     protected boolean transferCallNode(Stmt stmt, CPFact in, CPFact out) {
         // TODO - finish me
@@ -108,6 +252,11 @@ public class InterConstantPropagation extends
             out.update(key, in.get(key));
         }
 
+        if (staticValues != null &&
+                stmt instanceof StoreField store && store.isStatic()) {
+            transferStaticStore(store, in);
+            return !old.equals(out);
+        }
         if (stmt instanceof DefinitionStmt<?, ?> defStmt) {
             LValue lhs = defStmt.getLValue(); // 左边变量
             RValue rhs = defStmt.getRValue(); // 右边表达式
@@ -120,7 +269,10 @@ public class InterConstantPropagation extends
             if(!ConstantPropagation.canHoldInt((Var) lhs)) {return !old.equals(out);}
 
             // 分析 RHS
-            Value result = evaluate(rhs, in); // 你写一个方法来分析 RHS 值
+            Value result = staticValues != null &&
+                    stmt instanceof LoadField load && load.isStatic()
+                    ? getStaticValue(load)
+                    : evaluate(rhs, in); // 你写一个方法来分析 RHS 值
 
             // 更新左值
             out.update((Var) lhs, result); // 强转为 Var，前提是你确定它就是 Var 类型
@@ -131,6 +283,44 @@ public class InterConstantPropagation extends
         }
     }
 
+    /**
+     * @return the value read by given static load.
+     */
+    private Value getStaticValue(LoadField load) {
+        JField field = load.getFieldRef().resolveNullable();
+        if (field == null || untrackedFields.contains(field)) {
+            return Value.getNAC();
+        }
+        return staticValues.getOrDefault(field, Value.getUndef());
+    }
+
+    /**
+     * Meets the value written by given static store into the value of
+     * the field, and re-enqueues the static loads of the field if the
+     * value changes.
+     */
+    private void transferStaticStore(StoreField store, CPFact in) {
+        Var rhs = store.getRValue();
+        if (!ConstantPropagation.canHoldInt(rhs)) {
+            return;
+        }
+        JField field = store.getFieldRef().resolveNullable();
+        if (field == null || !staticLoads.containsKey(field) ||
+                untrackedFields.contains(field)) {
+            // the value of the field is never read from staticValues
+            return;
+        }
+        Value old = staticValues.getOrDefault(field, Value.getUndef());
+        // merge is atomic, and the value only goes down the lattice,
+        // thus a change is never missed by concurrent stores
+        Value value = staticValues.merge(field, in.get(rhs), this::meetValue);
+        // the solver is absent while the summaries are built, and
+        // then every load is in its initial work-list anyway
+        if (!value.equals(old) && solver != null) {
+            staticLoads.get(field).forEach(solver::addToWorkList);
+        }
+    }
+
     @Override
     protected CPFact transferNormalEdge(NormalEdge<Stmt> edge, CPFact out) {
         // TODO - finish me
@@ -140,6 +330,9 @@ public class InterConstantPropagation extends
     @Override
     protected CPFact transferCallToReturnEdge(CallToReturnEdge<Stmt> edge, CPFact out) {
         // TODO - finish me
+        if (summaries != null) {
+            return summaries.transferCallToReturn((Invoke) edge.getSource(), out);
+        }
         CPFact old = out.copy();
 
         Optional<LValue> lValue = edge.getSource().getDef();
@@ -158,8 +351,12 @@ public class InterConstantPropagation extends
         for(int i = 0; i < arg_count; i++) {
             Var arg = ((Invoke) edge.getSource()).getInvokeExp().getArg(i);
             Var param = edge.getCallee().getIR().getParam(i);
+            // with summaries, the results of calls do not depend on the
+            // callee bodies, which are then analyzed once for unknown
+            // arguments instead of for the arguments of every call site
             if(ConstantPropagation.canHoldInt(param))
-                after.update(param, callSiteOut.get(arg));
+                after.update(param, summaries != null
+                        ? Value.getNAC() : callSiteOut.get(arg));
         }
 
         return after;
@@ -168,6 +365,10 @@ public class InterConstantPropagation extends
     @Override
     protected CPFact transferReturnEdge(ReturnEdge<Stmt> edge, CPFact returnOut) {
         // TODO - finish me
+        if (summaries != null) {
+            // the result of the call is given by the call-to-return edge
+            return newInitialFact();
+        }
         CPFact after = new CPFact();
 
         Optional<LValue> lValue = edge.getCallSite().getDef();
@@ -22,21 +22,68 @@
 
 package pascal.taie.analysis.dataflow.inter;
 
-import pascal.taie.analysis.dataflow.analysis.constprop.CPFact;
 import pascal.taie.analysis.dataflow.fact.DataflowResult;
-import pascal.taie.analysis.graph.callgraph.Edge;
+import pascal.taie.analysis.dataflow.solver.MetricsRecorder;
+import pascal.taie.analysis.dataflow.solver.SolverMetrics;
+import pascal.taie.analysis.graph.icfg.CallEdge;
 import pascal.taie.analysis.graph.icfg.ICFG;
 import pascal.taie.analysis.graph.icfg.ICFGEdge;
-import pascal.taie.util.collection.SetQueue;
+import pascal.taie.analysis.graph.icfg.ReturnEdge;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.graph.MergedNode;
+import pascal.taie.util.graph.MergedSCCGraph;
+import pascal.taie.util.graph.SimpleGraph;
+import pascal.taie.util.graph.TopoSorter;
 
-import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
 
 /**
  * Solver for inter-procedural data-flow analysis.
  * The workload of inter-procedural analysis is heavy, thus we always
  * adopt work-list algorithm for efficiency.
+ * <p>
+ * The nodes of the ICFG are numbered densely before solving: methods are
+ * ordered topologically by the SCCs of the call graph, each method is
+ * given a base number, and each node is numbered by the base of its
+ * containing method plus its index in the method. The work-list is a
+ * ring buffer of node numbers with a {@link BitSet} for membership, so
+ * that solving does not allocate per visited node. It initially holds
+ * the nodes of each method in reverse post-order of the CFG of the method
+ * from its entry, followed by the nodes unreachable from the entry.
+ * <p>
+ * The successors of a node are derived from its out-edges only when its
+ * OUT fact changes, and the initial order is computed on the CFGs of the
+ * methods instead of the edges of the ICFG, so that the edges of an ICFG
+ * built on demand are not all built up front.
+ * <p>
+ * In parallel mode, the ICFG is partitioned by the SCCs of the call graph,
+ * and each partition is solved by its own work-list. Facts only cross
+ * partitions along {@link CallEdge}s and {@link ReturnEdge}s: when the OUT
+ * fact of a node changes, the transferred facts of its cross-partition
+ * out-edges are published, and the partitions of the targets are
+ * (re-)scheduled. A partition is first scheduled after the partitions
+ * of all its callers have been solved once.
  */
 class InterSolver<Method, Node, Fact> {
 
@@ -46,89 +93,545 @@ class InterSolver<Method, Node, Fact> {
 
     private DataflowResult<Node, Fact> result;
 
-    private Queue<Node> workList;
+    /**
+     * Function which gives the index of each node in its containing method.
+     */
+    private final ToIntFunction<Node> indexer;
+
+    /**
+     * Function which gives the successors of each node in the CFG of
+     * its containing method.
+     */
+    private final Function<Node, ? extends Collection<Node>> intraSuccs;
+
+    /**
+     * Nodes of the ICFG, where the i-th node has number i.
+     */
+    private List<Node> nodes;
+
+    /**
+     * Map from methods to the base numbers of their nodes.
+     */
+    private Map<Method, Integer> bases;
+
+    /**
+     * Numbers of the nodes in the order they are initially added to
+     * the work-list. The nodes of the i-th SCC are in the range from
+     * {@code orderStarts[i]} (inclusive) to {@code orderStarts[i + 1]}
+     * (exclusive).
+     */
+    private int[] order;
+
+    private int[] orderStarts;
+
+    /**
+     * Numbers of the entry nodes of the entry methods.
+     */
+    private BitSet entries;
+
+    /**
+     * Whether to solve the partitions of the ICFG in parallel.
+     */
+    private final boolean parallel;
+
+    /**
+     * Merged SCCs of the call graph.
+     */
+    private MergedSCCGraph<Method> sccGraph;
+
+    /**
+     * SCCs of the call graph in topological order. The nodes of the i-th
+     * SCC are numbered from {@code sccStarts[i]} (inclusive) to
+     * {@code sccStarts[i + 1]} (exclusive).
+     */
+    private List<MergedNode<Method>> sccs;
+
+    private int[] sccStarts;
+
+    /**
+     * Partitions of the ICFG, one for each SCC, and the index of
+     * the partition of each node. In sequential mode, the whole ICFG
+     * is a single partition and partitionOf is null.
+     */
+    private List<Partition> partitions;
+
+    private int[] partitionOf;
+
+    /**
+     * Facts transferred along the cross-partition edges.
+     */
+    private Map<ICFGEdge<Node>, Fact> crossFacts;
+
+    /**
+     * Number of partitions which are scheduled or running.
+     */
+    private AtomicInteger active;
+
+    private CompletableFuture<Void> done;
+
+    private ForkJoinPool pool;
+
+    /**
+     * ID of the analysis, used to label the metrics.
+     */
+    private final String analysisId;
+
+    /**
+     * Recorder of the solver metrics, or null if metrics are not enabled.
+     */
+    private final MetricsRecorder metricsRecorder;
+
+    /**
+     * Solver metrics of each method, counted while solving.
+     */
+    private final Map<Method, SolverMetrics> metrics =
+            Collections.synchronizedMap(new LinkedHashMap<>());
+
+    InterSolver(InterDataflowAnalysis<Node, Fact> analysis,
+                ICFG<Method, Node> icfg, ToIntFunction<Node> indexer,
+                Function<Node, ? extends Collection<Node>> intraSuccs) {
+        this(analysis, icfg, indexer, intraSuccs, null, null, false);
+    }
 
     InterSolver(InterDataflowAnalysis<Node, Fact> analysis,
-                ICFG<Method, Node> icfg) {
+                ICFG<Method, Node> icfg, ToIntFunction<Node> indexer,
+                Function<Node, ? extends Collection<Node>> intraSuccs,
+                String analysisId, MetricsRecorder metricsRecorder,
+                boolean parallel) {
         this.analysis = analysis;
         this.icfg = icfg;
+        this.indexer = indexer;
+        this.intraSuccs = intraSuccs;
+        this.analysisId = analysisId;
+        this.metricsRecorder = metricsRecorder;
+        this.parallel = parallel;
     }
 
     DataflowResult<Node, Fact> solve() {
         result = new DataflowResult<>();
+        numberNodes();
         initialize();
-        doSolve();
+        if (parallel) {
+            doSolveInParallel();
+        } else {
+            doSolve();
+        }
+        if (metricsRecorder != null) {
+            metrics.values().forEach(metricsRecorder::add);
+            metrics.clear();
+        }
         return result;
     }
 
-    private void initialize() {
-        // TODO - finish me
-        Stream<Method> entris = icfg.entryMethods();
-        Set<Method> entrySet = entris.collect(Collectors.toSet());
-        Set<Node> entrynodes = new HashSet<>();
-        for (Method m : entrySet) {
-            entrynodes.add(icfg.getEntryOf(m));
+    /**
+     * @return the metrics of the method containing given node,
+     * or null if metrics are not enabled.
+     */
+    private SolverMetrics getMetrics(Node node) {
+        if (metricsRecorder == null) {
+            return null;
         }
+        return metrics.computeIfAbsent(icfg.getContainingMethodOf(node),
+                m -> new SolverMetrics(analysisId, m.toString()));
+    }
 
-        if(entrynodes.size() > 1) {throw new UnsupportedOperationException("more than one entry method!");}
-
+    /**
+     * Numbers the nodes of the ICFG in the order described in the class
+     * documentation.
+     */
+    private void numberNodes() {
+        // group nodes by their containing methods, and collect
+        // the call edges between the methods
+        Map<Method, List<Node>> methodNodes = new LinkedHashMap<>();
+        SimpleGraph<Method> callGraph = new SimpleGraph<>();
+        for (Node node : icfg) {
+            Method method = icfg.getContainingMethodOf(node);
+            methodNodes.computeIfAbsent(method, m -> new ArrayList<>()).add(node);
+            callGraph.addNode(method);
+            if (icfg.isCallSite(node)) {
+                for (Method callee : icfg.getCalleesOf(node)) {
+                    callGraph.addEdge(method, callee);
+                }
+            }
+        }
+        bases = Maps.newMap(methodNodes.size());
+        sccGraph = new MergedSCCGraph<>(callGraph);
+        sccs = new TopoSorter<>(sccGraph).get();
+        sccStarts = new int[sccs.size() + 1];
+        orderStarts = new int[sccs.size() + 1];
+        order = new int[icfg.getNumberOfNodes()];
+        int size = 0;
+        int count = 0;
+        for (int i = 0; i < sccs.size(); ++i) {
+            sccStarts[i] = size;
+            orderStarts[i] = count;
+            for (Method method : sccs.get(i).getNodes()) {
+                List<Node> nodesOfMethod = methodNodes.getOrDefault(method, List.of());
+                if (nodesOfMethod.isEmpty()) {
+                    continue;
+                }
+                bases.put(method, size);
+                size += nodesOfMethod.stream().mapToInt(indexer).max().getAsInt() + 1;
+                count = appendInRPO(method, nodesOfMethod, count);
+            }
+        }
+        sccStarts[sccs.size()] = size;
+        orderStarts[sccs.size()] = count;
+        nodes = new ArrayList<>(Collections.nCopies(size, null));
         for (Node node : icfg) {
-            if (entrynodes.contains(node)) {
-                result.setInFact(node, analysis.newBoundaryFact(node));
+            nodes.set(getNumber(node), node);
+        }
+    }
+
+    /**
+     * Appends the numbers of the nodes of given method to {@link #order}
+     * from position {@code count}, in reverse post-order of the CFG of the
+     * method from its entry, followed by the nodes unreachable from the
+     * entry in the order of their numbers.
+     *
+     * @return the position after the appended numbers.
+     */
+    private int appendInRPO(Method method, List<Node> nodesOfMethod, int count) {
+        int[] postOrder = new int[nodesOfMethod.size()];
+        int n = 0;
+        BitSet visited = new BitSet();
+        Deque<Node> stack = new ArrayDeque<>();
+        Deque<Iterator<Node>> succs = new ArrayDeque<>();
+        Node entry = icfg.getEntryOf(method);
+        visited.set(indexer.applyAsInt(entry));
+        stack.push(entry);
+        succs.push(intraSuccs.apply(entry).iterator());
+        while (!stack.isEmpty()) {
+            Iterator<Node> iter = succs.peek();
+            if (iter.hasNext()) {
+                Node succ = iter.next();
+                if (!visited.get(indexer.applyAsInt(succ))) {
+                    visited.set(indexer.applyAsInt(succ));
+                    stack.push(succ);
+                    succs.push(intraSuccs.apply(succ).iterator());
+                }
             } else {
-                result.setInFact(node, analysis.newInitialFact()); // 若是引用类型，记得 copy！
+                succs.pop();
+                postOrder[n++] = getNumber(stack.pop());
             }
+        }
+        for (int i = n - 1; i >= 0; --i) {
+            order[count++] = postOrder[i];
+        }
+        int[] unreachable = nodesOfMethod.stream()
+                .filter(node -> !visited.get(indexer.applyAsInt(node)))
+                .mapToInt(this::getNumber)
+                .sorted()
+                .toArray();
+        System.arraycopy(unreachable, 0, order, count, unreachable.length);
+        return count + unreachable.length;
+    }
+
+    /**
+     * @return the number of given node.
+     */
+    private int getNumber(Node node) {
+        return bases.get(icfg.getContainingMethodOf(node)) + indexer.applyAsInt(node);
+    }
+
+    private void initialize() {
+        entries = new BitSet(nodes.size());
+        icfg.entryMethods().forEach(method ->
+                entries.set(getNumber(icfg.getEntryOf(method))));
+        if (entries.cardinality() > 1) {
+            throw new UnsupportedOperationException("more than one entry method!");
+        }
+        for (int i : order) {
+            Node node = nodes.get(i);
+            result.setInFact(node, entries.get(i)
+                    ? analysis.newBoundaryFact(node)
+                    : analysis.newInitialFact());
             result.setOutFact(node, analysis.newInitialFact());
         }
+    }
 
+    /**
+     * Adds given node to the work-list, so that it is transferred again
+     * even if none of its in-edges carries a new fact, e.g., when its
+     * fact depends on a side channel of the analysis which has changed.
+     */
+    void addToWorkList(Node node) {
+        int i = getNumber(node);
+        if (partitionOf == null) {
+            partitions.get(0).add(i);
+        } else {
+            Partition partition = partitions.get(partitionOf[i]);
+            partition.inbox.add(i);
+            schedule(partition);
+        }
     }
 
     private void doSolve() {
-        // TODO - finish me
+        Partition partition = new Partition(0, 0, nodes.size(), 0, order.length);
+        partitions = List.of(partition);
+        try {
+            partition.solve();
+        } finally {
+            partitions = null;
+        }
+    }
 
-        Stream<Method> entris = icfg.entryMethods();
-        Set<Method> entrySet = entris.collect(Collectors.toSet());
-        Set<Node> entrynodes = new HashSet<>();
-        for (Method m : entrySet) {
-            entrynodes.add(icfg.getEntryOf(m));
+    private void doSolveInParallel() {
+        int size = sccs.size();
+        partitions = new ArrayList<>(size);
+        partitionOf = new int[nodes.size()];
+        Map<MergedNode<Method>, Partition> partitionOfSCC = Maps.newMap(size);
+        for (int i = 0; i < size; ++i) {
+            Partition partition = new Partition(i, sccStarts[i], sccStarts[i + 1],
+                    orderStarts[i], orderStarts[i + 1]);
+            partitions.add(partition);
+            Arrays.fill(partitionOf, sccStarts[i], sccStarts[i + 1], i);
+            partitionOfSCC.put(sccs.get(i), partition);
+        }
+        for (int i = 0; i < size; ++i) {
+            Partition partition = partitions.get(i);
+            MergedNode<Method> scc = sccs.get(i);
+            partition.callees = sccGraph.getSuccsOf(scc)
+                    .stream()
+                    .map(partitionOfSCC::get)
+                    .toList();
+            partition.waiting.set(sccGraph.getPredsOf(scc).size());
+        }
+        crossFacts = Maps.newConcurrentMap();
+        active = new AtomicInteger(1);
+        done = new CompletableFuture<>();
+        pool = ForkJoinTask.inForkJoinPool()
+                ? ForkJoinTask.getPool() : ForkJoinPool.commonPool();
+        for (Partition partition : partitions) {
+            if (partition.waiting.get() == 0) {
+                partition.ready = true;
+                schedule(partition);
+            }
+        }
+        // the initial count keeps done from completing before
+        // all root partitions are scheduled
+        deactivate();
+        try {
+            done.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw e;
+        } finally {
+            partitions = null;
+            partitionOf = null;
+            crossFacts = null;
         }
+    }
 
-        boolean changed = true;
+    private void schedule(Partition partition) {
+        if (partition.ready && partition.scheduled.compareAndSet(false, true)) {
+            active.incrementAndGet();
+            pool.execute(() -> run(partition));
+        }
+    }
 
-        Map<Node, Boolean> map= new HashMap<>();
-        Stack<Node> stack = new Stack<>();
-        for (Node node : icfg) {
-            stack.push(node);
-            map.put(node, true);
+    private void run(Partition partition) {
+        try {
+            do {
+                for (Integer node; (node = partition.inbox.poll()) != null; ) {
+                    partition.add(node);
+                }
+                partition.solve();
+                if (!partition.solved) {
+                    partition.solved = true;
+                    for (Partition callee : partition.callees) {
+                        if (callee.waiting.decrementAndGet() == 0) {
+                            callee.ready = true;
+                            schedule(callee);
+                        }
+                    }
+                }
+                partition.scheduled.set(false);
+                // nodes added to the inbox before the flag is reset
+                // did not schedule this partition again
+            } while (!partition.inbox.isEmpty() &&
+                    partition.scheduled.compareAndSet(false, true));
+        } catch (Throwable e) {
+            done.completeExceptionally(e);
+        } finally {
+            deactivate();
+        }
+    }
+
+    private void deactivate() {
+        if (active.decrementAndGet() == 0) {
+            done.complete(null);
         }
+    }
+
+    /**
+     * A range of numbered nodes solved by a work-list of its own.
+     */
+    private class Partition {
+
+        private final int index;
+
+        private final int start;
+
+        private final int end;
+
+        /**
+         * Ring buffer of the numbers of the nodes to be processed;
+         * each node is in the buffer at most once, so it never overflows.
+         */
+        private final int[] workList;
+
+        private int head = 0;
 
-        while(!stack.empty()) {
-            Node node = stack.pop();
-            System.out.println("node: " + node);
-            map.put(node, false);
+        private int count;
 
-            changed = false;
-            if(!entrynodes.contains(node)) {
-                result.setInFact(node, analysis.newInitialFact());
+        private final BitSet inWorkList;
+
+        /**
+         * Partitions of the callees of the methods in this partition.
+         */
+        private List<Partition> callees;
+
+        /**
+         * Number of the caller partitions which have not been solved once.
+         */
+        private final AtomicInteger waiting = new AtomicInteger();
+
+        /**
+         * Whether this partition can be scheduled.
+         */
+        private volatile boolean ready = false;
+
+        /**
+         * Whether this partition is scheduled or running.
+         */
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        /**
+         * Whether this partition has been solved once.
+         */
+        private boolean solved = false;
+
+        /**
+         * Nodes of this partition whose cross-partition in-edges
+         * carry new facts.
+         */
+        private final Queue<Integer> inbox = new ConcurrentLinkedQueue<>();
+
+        /**
+         * Creates a partition of the nodes numbered in range
+         * [start, end), which are initially added to the work-list
+         * in the order of {@code order[orderStart, orderEnd)}.
+         */
+        private Partition(int index, int start, int end,
+                          int orderStart, int orderEnd) {
+            this.index = index;
+            this.start = start;
+            this.end = end;
+            workList = new int[end - start];
+            inWorkList = new BitSet(end - start);
+            for (int i = orderStart; i < orderEnd; ++i) {
+                workList[count++] = order[i];
+                inWorkList.set(order[i] - start);
             }
+        }
 
-            for(ICFGEdge<Node> edge: icfg.getInEdgesOf(node)){
-                Fact processed = analysis.transferEdge(edge,result.getOutFact(edge.getSource()));
-                analysis.meetInto(processed,result.getInFact(node));
+        private void add(int node) {
+            if (!inWorkList.get(node - start)) {
+                inWorkList.set(node - start);
+                int tail = head + count;
+                int size = workList.length;
+                workList[tail < size ? tail : tail - size] = node;
+                ++count;
             }
+        }
 
-//            analysis.meetInto(result.getInFact(node), result.getOutFact(node) );
-            boolean res = analysis.transferNode(node, result.getInFact(node),result.getOutFact(node));
-            changed = changed || res;
-            if (changed) {
-                for (Node succ : icfg.getSuccsOf(node)) {
-                    if(!map.get(succ)) {
-                        map.put(succ, true);
-                        stack.push(succ);
+        private boolean contains(int node) {
+            return start <= node && node < end;
+        }
+
+        private void solve() {
+            while (count > 0) {
+                int i = workList[head];
+                head = head + 1 == workList.length ? 0 : head + 1;
+                --count;
+                inWorkList.clear(i - start);
+                Node node = nodes.get(i);
+                SolverMetrics nodeMetrics = getMetrics(node);
+                long startTime = 0;
+                if (nodeMetrics != null) {
+                    nodeMetrics.countPop();
+                    startTime = System.nanoTime();
+                }
+                // facts only grow, thus IN is updated in place
+                Fact in = result.getInFact(node);
+                for (ICFGEdge<Node> edge : icfg.getInEdgesOf(node)) {
+                    Fact fact;
+                    if (isCrossEdge(edge)) {
+                        fact = crossFacts.get(edge);
+                        if (fact == null) {
+                            continue;
+                        }
+                    } else {
+                        fact = analysis.transferEdge(
+                                edge, result.getOutFact(edge.getSource()));
+                    }
+                    analysis.meetInto(fact, in);
+                    if (nodeMetrics != null) {
+                        nodeMetrics.countMeet();
+                    }
+                }
+                Fact out = result.getOutFact(node);
+                boolean changed = analysis.transferNode(node, in, out);
+                if (nodeMetrics != null) {
+                    nodeMetrics.countTransfer(changed);
+                    nodeMetrics.updateFactSize(out);
+                    nodeMetrics.addWallTime(System.nanoTime() - startTime);
+                }
+                if (changed) {
+                    boolean hasCrossEdges = false;
+                    int base = i - indexer.applyAsInt(node);
+                    for (ICFGEdge<Node> edge : icfg.getOutEdgesOf(node)) {
+                        Node target = edge.getTarget();
+                        // intra-procedural edges stay in the method of node
+                        int succ = edge instanceof CallEdge || edge instanceof ReturnEdge
+                                ? getNumber(target)
+                                : base + indexer.applyAsInt(target);
+                        if (contains(succ)) {
+                            add(succ);
+                        } else {
+                            hasCrossEdges = true;
+                        }
+                    }
+                    if (hasCrossEdges) {
+                        publish(node, out);
                     }
                 }
             }
         }
-    }
 
+        private boolean isCrossEdge(ICFGEdge<Node> edge) {
+            return partitionOf != null &&
+                    (edge instanceof CallEdge || edge instanceof ReturnEdge) &&
+                    partitionOf[getNumber(edge.getSource())] != index;
+        }
+
+        /**
+         * Publishes the facts transferred along the cross-partition
+         * out-edges of given node, and schedules the target partitions.
+         */
+        private void publish(Node node, Fact out) {
+            for (ICFGEdge<Node> edge : icfg.getOutEdgesOf(node)) {
+                int target = getNumber(edge.getTarget());
+                if (!contains(target)) {
+                    crossFacts.put(edge, analysis.transferEdge(edge, out));
+                    Partition partition = partitions.get(partitionOf[target]);
+                    partition.inbox.add(target);
+                    schedule(partition);
+                }
+            }
+        }
+    }
 }
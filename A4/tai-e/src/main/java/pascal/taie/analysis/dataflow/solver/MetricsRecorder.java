@@ -0,0 +1,291 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.solver;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.util.collection.Maps;
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Supplier;
+
+/**
+ * Collects {@link SolverMetrics} of the solver runs and writes them
+ * to a file when {@link #dump()} (or {@link #dumpAll()}) is called,
+ * i.e., when the analyses producing them have finished.
+ * <p>
+ * Only the top-N slowest runs are kept, together with the running totals
+ * of each analysis, so that the memory of a recorder does not grow with
+ * the number of analyzed methods.
+ * <p>
+ * The format is chosen by the file name: CSV for files ending with
+ * ".csv", otherwise JSON. CSV rows list the slowest runs (slowest first)
+ * followed by one row of totals for each analysis, whose method is "*"
+ * and whose peakFactSize is the maximum over all runs. Each run is also
+ * reported as a JFR event.
+ */
+public class MetricsRecorder {
+
+    private static final Logger logger = LogManager.getLogger(MetricsRecorder.class);
+
+    /**
+     * Default number of the slowest runs to report.
+     */
+    public static final int DEFAULT_TOP = 10;
+
+    /**
+     * Recorders of all output files, so that analyses configured
+     * with the same file share one recorder.
+     */
+    private static final Map<String, MetricsRecorder> recorders =
+            Maps.newConcurrentMap();
+
+    private static final Comparator<SolverMetrics> BY_WALL_TIME =
+            Comparator.comparingLong(SolverMetrics::getWallTime);
+
+    private final String file;
+
+    private final int top;
+
+    /**
+     * The slowest runs recorded so far, the fastest of them at the head.
+     */
+    private final PriorityQueue<SolverMetrics> slowest;
+
+    /**
+     * Totals of the runs of each analysis.
+     */
+    private final Map<String, Totals> totals = new LinkedHashMap<>();
+
+    private MetricsRecorder(String file, int top) {
+        this.file = file;
+        this.top = top;
+        this.slowest = new PriorityQueue<>(BY_WALL_TIME);
+    }
+
+    /**
+     * @return the recorder which writes metrics to given file.
+     */
+    public static MetricsRecorder of(String file, int top) {
+        return recorders.computeIfAbsent(file, f -> new MetricsRecorder(f, top));
+    }
+
+    /**
+     * Writes the metrics of all recorders to their files, and discards
+     * the recorders, so that later runs start from fresh ones.
+     */
+    public static void dumpAll() {
+        for (String file : List.copyOf(recorders.keySet())) {
+            MetricsRecorder recorder = recorders.remove(file);
+            if (recorder != null) {
+                recorder.dump();
+            }
+        }
+    }
+
+    /**
+     * Runs a solver and records its metrics.
+     *
+     * @param metrics metrics which are updated by the solver
+     * @param solve   the function running the solver
+     * @return the result of the solver
+     */
+    public <R> R record(SolverMetrics metrics, Supplier<R> solve) {
+        SolveEvent event = new SolveEvent();
+        event.begin();
+        long start = System.nanoTime();
+        R result = solve.get();
+        metrics.addWallTime(System.nanoTime() - start);
+        event.end();
+        commit(event, metrics);
+        addRecord(metrics);
+        return result;
+    }
+
+    /**
+     * Records the metrics of a solver which measures its wall time itself.
+     */
+    public void add(SolverMetrics metrics) {
+        commit(new SolveEvent(), metrics);
+        addRecord(metrics);
+    }
+
+    private synchronized void addRecord(SolverMetrics metrics) {
+        totals.computeIfAbsent(metrics.getAnalysis(), a -> new Totals())
+                .add(metrics);
+        if (top > 0) {
+            slowest.add(metrics);
+            if (slowest.size() > top) {
+                slowest.poll();
+            }
+        }
+    }
+
+    private static void commit(SolveEvent event, SolverMetrics metrics) {
+        if (event.shouldCommit()) {
+            event.analysis = metrics.getAnalysis();
+            event.method = metrics.getMethod();
+            event.pops = metrics.getPops();
+            event.transfers = metrics.getTransfers();
+            event.changedTransfers = metrics.getChangedTransfers();
+            event.meets = metrics.getMeets();
+            event.peakFactSize = metrics.getPeakFactSize();
+            event.wallTime = metrics.getWallTime();
+            event.commit();
+        }
+    }
+
+    /**
+     * Writes the metrics recorded so far to the file.
+     */
+    public synchronized void dump() {
+        List<SolverMetrics> sorted = new ArrayList<>(slowest);
+        sorted.sort(BY_WALL_TIME.reversed());
+        try (PrintStream out = new PrintStream(file)) {
+            if (file.endsWith(".csv")) {
+                writeCSV(out, sorted);
+            } else {
+                writeJSON(out, sorted);
+            }
+        } catch (FileNotFoundException e) {
+            logger.warn("Failed to write solver metrics to {}", file, e);
+        }
+    }
+
+    private void writeCSV(PrintStream out, List<SolverMetrics> records) {
+        out.println("analysis,method,pops,transfers,changedTransfers," +
+                "meets,peakFactSize,wallTimeNanos");
+        for (SolverMetrics m : records) {
+            writeCSVRow(out, m.getAnalysis(), m.getMethod(),
+                    m.getPops(), m.getTransfers(), m.getChangedTransfers(),
+                    m.getMeets(), m.getPeakFactSize(), m.getWallTime());
+        }
+        totals.forEach((analysis, t) -> writeCSVRow(out, analysis, "*",
+                t.pops, t.transfers, t.changedTransfers,
+                t.meets, t.peakFactSize, t.wallTime));
+    }
+
+    private static void writeCSVRow(
+            PrintStream out, String analysis, String method, long pops,
+            long transfers, long changedTransfers, long meets,
+            int peakFactSize, long wallTime) {
+        out.println(String.join(",", quoteCSV(analysis), quoteCSV(method),
+                Long.toString(pops),
+                Long.toString(transfers),
+                Long.toString(changedTransfers),
+                Long.toString(meets),
+                Integer.toString(peakFactSize),
+                Long.toString(wallTime)));
+    }
+
+    private static String quoteCSV(String s) {
+        return '"' + s.replace("\"", "\"\"") + '"';
+    }
+
+    private void writeJSON(PrintStream out, List<SolverMetrics> records) {
+        out.println("{");
+        out.println("  \"slowest\": [");
+        for (int i = 0; i < records.size(); ++i) {
+            SolverMetrics m = records.get(i);
+            out.printf("    {\"analysis\": %s, \"method\": %s, \"pops\": %d, " +
+                            "\"transfers\": %d, \"changedTransfers\": %d, " +
+                            "\"meets\": %d, \"peakFactSize\": %d, " +
+                            "\"wallTimeNanos\": %d}%s%n",
+                    quoteJSON(m.getAnalysis()), quoteJSON(m.getMethod()),
+                    m.getPops(), m.getTransfers(), m.getChangedTransfers(),
+                    m.getMeets(), m.getPeakFactSize(), m.getWallTime(),
+                    i < records.size() - 1 ? "," : "");
+        }
+        out.println("  ],");
+        out.println("  \"totals\": [");
+        int i = 0;
+        for (Map.Entry<String, Totals> e : totals.entrySet()) {
+            Totals t = e.getValue();
+            out.printf("    {\"analysis\": %s, \"runs\": %d, \"pops\": %d, " +
+                            "\"transfers\": %d, \"changedTransfers\": %d, " +
+                            "\"meets\": %d, \"maxPeakFactSize\": %d, " +
+                            "\"wallTimeNanos\": %d}%s%n",
+                    quoteJSON(e.getKey()), t.runs, t.pops, t.transfers,
+                    t.changedTransfers, t.meets, t.peakFactSize, t.wallTime,
+                    ++i < totals.size() ? "," : "");
+        }
+        out.println("  ]");
+        out.println("}");
+    }
+
+    private static String quoteJSON(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * Running totals of the runs of an analysis.
+     */
+    private static class Totals {
+
+        private long runs;
+
+        private long pops;
+
+        private long transfers;
+
+        private long changedTransfers;
+
+        private long meets;
+
+        private int peakFactSize;
+
+        private long wallTime;
+
+        private void add(SolverMetrics m) {
+            ++runs;
+            pops += m.getPops();
+            transfers += m.getTransfers();
+            changedTransfers += m.getChangedTransfers();
+            meets += m.getMeets();
+            peakFactSize = Math.max(peakFactSize, m.getPeakFactSize());
+            wallTime += m.getWallTime();
+        }
+    }
+}
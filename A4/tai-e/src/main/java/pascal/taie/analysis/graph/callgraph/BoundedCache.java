@@ -0,0 +1,72 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.callgraph;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Thread-safe cache which holds at most a given number of entries,
+ * and evicts the least recently used entry when it is full.
+ * Null values are cached as well.
+ *
+ * @param <K> type of keys
+ * @param <V> type of values
+ */
+class BoundedCache<K, V> {
+
+    private final Map<K, V> map;
+
+    BoundedCache(int capacity) {
+        map = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @return the value cached for given key. If absent, the value is
+     * computed by given function and cached.
+     */
+    V get(K key, Function<? super K, ? extends V> function) {
+        synchronized (map) {
+            if (map.containsKey(key)) {
+                return map.get(key);
+            }
+        }
+        // compute the value outside the lock, as the function may
+        // query this cache recursively; concurrent misses of the same
+        // key compute equal values, thus the first one is kept
+        V value = function.apply(key);
+        synchronized (map) {
+            if (map.containsKey(key)) {
+                return map.get(key);
+            }
+            map.put(key, value);
+        }
+        return value;
+    }
+}
@@ -26,6 +26,7 @@ import pascal.taie.World;
 import pascal.taie.ir.IR;
 import pascal.taie.ir.exp.InvokeVirtual;
 import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.proginfo.MethodRef;
 import pascal.taie.ir.stmt.Invoke;
 import pascal.taie.ir.stmt.Stmt;
 import pascal.taie.language.classes.ClassHierarchy;
@@ -42,8 +43,32 @@ import static pascal.taie.analysis.graph.callgraph.CallKind.*;
  */
 class CHABuilder implements CGBuilder<Invoke, JMethod> {
 
+    /**
+     * Maximum number of entries of {@link #dispatchCache}.
+     */
+    private static final int DISPATCH_CACHE_SIZE = 1 << 16;
+
+    /**
+     * Maximum number of entries of {@link #resolveCache}.
+     */
+    private static final int RESOLVE_CACHE_SIZE = 1 << 14;
+
     private ClassHierarchy hierarchy;
 
+    /**
+     * Results of {@link #dispatch(JClass, Subsignature)}, so that the
+     * superclasses are walked at most once for each class and subsignature.
+     */
+    private final BoundedCache<DispatchKey, JMethod> dispatchCache =
+            new BoundedCache<>(DISPATCH_CACHE_SIZE);
+
+    /**
+     * Callees resolved for each method reference and call kind, which are
+     * shared by all call sites with the same method reference and kind.
+     */
+    private final BoundedCache<ResolveKey, Set<JMethod>> resolveCache =
+            new BoundedCache<>(RESOLVE_CACHE_SIZE);
+
     @Override
     public CallGraph<Invoke, JMethod> build() {
         hierarchy = World.get().getClassHierarchy();
@@ -68,8 +93,8 @@ class CHABuilder implements CGBuilder<Invoke, JMethod> {
         while(!worklist.empty()) {
             Invoke invoke = worklist.pop();                                                  //如果语句类型是Invoke
             Set<JMethod> jMethods = resolve(invoke);                                        //获取invoke所有callee
+            CallKind callKind = CallGraphs.getCallKind(invoke);
             for (JMethod jMethod : jMethods) {                                              //遍历所有callee
-                CallKind callKind = CallGraphs.getCallKind(invoke);
                 boolean has_change = callGraph.addReachableMethod(jMethod);
                 Edge<Invoke,JMethod> ee =new Edge<>(callKind,invoke,jMethod);
                 callGraph.addEdge(ee);
@@ -89,26 +114,37 @@ class CHABuilder implements CGBuilder<Invoke, JMethod> {
      * Resolves call targets (callees) of a call site via CHA.
      */
     private Set<JMethod> resolve(Invoke callSite) {
+        return resolveCache.get(new ResolveKey(callSite.getMethodRef(),
+                CallGraphs.getCallKind(callSite)), this::resolve);
+    }
+
+    /**
+     * Resolves call targets (callees) of given method reference and call
+     * kind via CHA.
+     */
+    private Set<JMethod> resolve(ResolveKey key) {
         // TODO - finish me
         Set<JMethod> returnedMethods = new HashSet<>();
+        MethodRef methodRef = key.methodRef();
+        CallKind kind = key.kind();
 
-        if(callSite.isStatic()) {
-            JClass jClass = callSite.getMethodRef().getDeclaringClass();
-            Subsignature subsignature = callSite.getMethodRef().getSubsignature();
+        if(kind == STATIC) {
+            JClass jClass = methodRef.getDeclaringClass();
+            Subsignature subsignature = methodRef.getSubsignature();
             JMethod jMethod = jClass.getDeclaredMethod(subsignature);                             //static只需要在本函数内找
             if(jMethod != null)
                 returnedMethods.add(jMethod);
         }
-        else if(callSite.isSpecial()) {
-            JClass jClass = callSite.getMethodRef().getDeclaringClass();
-            Subsignature subsignature = callSite.getMethodRef().getSubsignature();
+        else if(kind == SPECIAL) {
+            JClass jClass = methodRef.getDeclaringClass();
+            Subsignature subsignature = methodRef.getSubsignature();
             JMethod jMethod = dispatch(jClass,subsignature);                                     //special需要dispatch一下
             if(jMethod != null)
                 returnedMethods.add(jMethod);
         }
-        else if(callSite.isInterface()) {
-            JClass jClass = callSite.getMethodRef().getDeclaringClass();
-            Subsignature subsignature = callSite.getMethodRef().getSubsignature();
+        else if(kind == INTERFACE) {
+            JClass jClass = methodRef.getDeclaringClass();
+            Subsignature subsignature = methodRef.getSubsignature();
 
             Set<JClass> visited = new HashSet<>();
             Stack<JClass> worklist = new Stack<>();
@@ -133,9 +169,11 @@ class CHABuilder implements CGBuilder<Invoke, JMethod> {
                     }
                 }
                 else{                                                                            //如果是类，先把自己加入，再把所有子类加入worklist
-                    if(!jClass1.isAbstract())
-                        if(dispatch(jClass1, subsignature)!=null)
-                            returnedMethods.add(dispatch(jClass1, subsignature));
+                    if(!jClass1.isAbstract()) {
+                        JMethod jMethod = dispatch(jClass1, subsignature);
+                        if(jMethod != null)
+                            returnedMethods.add(jMethod);
+                    }
                     Collection<JClass> subclasses = hierarchy.getDirectSubclassesOf(jClass1);
                     for(JClass subclass : subclasses){
                         if(!visited.contains(subclass)) {
@@ -148,16 +186,12 @@ class CHABuilder implements CGBuilder<Invoke, JMethod> {
 
 
         }
-        else if(callSite.isVirtual()) {                                                            //virtual的callee不止一种，需要遍历class hierarchy
-            Subsignature subsignature = callSite.getMethodRef().getSubsignature();
-            JClass declaringClass = callSite.getMethodRef().getDeclaringClass();
+        else if(kind == VIRTUAL) {                                                                 //virtual的callee不止一种，需要遍历class hierarchy
+            Subsignature subsignature = methodRef.getSubsignature();
+            JClass declaringClass = methodRef.getDeclaringClass();
             Stack<JClass> worklist = new Stack<>();                                           //深度优先搜索第一层
             worklist.push(declaringClass);
 
-            System.out.println("callsite: "+callSite);
-            for(JClass jClass : worklist) {
-                System.out.println("VirtualJclass in Worklist : "+jClass);
-            }
             while (!worklist.isEmpty()) {                                                          //深度优先搜索
                 JClass onesubjClass = worklist.pop();
                 JMethod jMethod = dispatch(onesubjClass, subsignature);                            //通过dispatch拿到这个类往上层爬最终到达的方法
@@ -170,7 +204,7 @@ class CHABuilder implements CGBuilder<Invoke, JMethod> {
                 }
             }
         }
-        return returnedMethods;
+        return Collections.unmodifiableSet(returnedMethods);
     }
 
     /**
@@ -180,6 +214,11 @@ class CHABuilder implements CGBuilder<Invoke, JMethod> {
      * can be found.
      */
     private JMethod dispatch(JClass jclass, Subsignature subsignature) {
+        return dispatchCache.get(new DispatchKey(jclass, subsignature),
+                key -> lookup(key.jclass(), key.subsignature()));
+    }
+
+    private JMethod lookup(JClass jclass, Subsignature subsignature) {
         // TODO - finish me
         JMethod jMethod = jclass.getDeclaredMethod(subsignature);             //获取本身的类里面subsignature与参数一致的方法
         if(jMethod != null && !jMethod.isAbstract()) { return jMethod; }                               //如果找到了，直接返回
@@ -190,4 +229,16 @@ class CHABuilder implements CGBuilder<Invoke, JMethod> {
         }
         return null;                                                          //最终没找到，返回null
     }
+
+    /**
+     * Uses as keys to identify the results of dispatch in cache.
+     */
+    private record DispatchKey(JClass jclass, Subsignature subsignature) {
+    }
+
+    /**
+     * Uses as keys to identify the results of resolution in cache.
+     */
+    private record ResolveKey(MethodRef methodRef, CallKind kind) {
+    }
 }
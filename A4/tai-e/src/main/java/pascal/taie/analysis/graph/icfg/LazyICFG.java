@@ -0,0 +1,265 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.icfg;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.analysis.graph.callgraph.CallGraph;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.Edge;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.Return;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.type.ClassType;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.MultiMap;
+import pascal.taie.util.collection.Sets;
+import pascal.taie.util.collection.Views;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ICFG whose edges are built on demand.
+ * <p>
+ * Only the nodes of the ICFG are collected up front. The edges of
+ * a method, i.e., the edges going into and out of its nodes, are built
+ * from the CFG of the method and the call graph when they are first
+ * queried, and the edges of recently queried methods are cached.
+ * The edges of a method are equal to the ones built again after they
+ * are evicted from the cache.
+ * <p>
+ * The cache is split into stripes by the hash codes of the methods,
+ * each of which is an LRU cache guarded by its own lock, so that
+ * threads querying the edges of different methods rarely contend.
+ */
+class LazyICFG extends AbstractICFG<JMethod, Stmt> {
+
+    private static final Logger logger = LogManager.getLogger(LazyICFG.class);
+
+    private final Map<Stmt, CFG<Stmt>> stmtToCFG = new LinkedHashMap<>();
+
+    /**
+     * Maximum number of stripes of the cache.
+     */
+    private static final int MAX_STRIPES = 16;
+
+    /**
+     * Stripes of the cache of the edges of recently queried methods,
+     * each in access order.
+     */
+    private final Map<JMethod, MethodEdges>[] stripes;
+
+    LazyICFG(CallGraph<Stmt, JMethod> callGraph, int cacheSize) {
+        super(callGraph);
+        int n = Math.max(1, Math.min(MAX_STRIPES, cacheSize));
+        stripes = newStripes(n, Math.max(1, (cacheSize + n - 1) / n));
+        callGraph.forEach(method -> {
+            CFG<Stmt> cfg = ICFGBuilder.getCFGOf(method);
+            if (cfg == null) {
+                logger.warn("CFG of {} is absent, try to fix this" +
+                        " by adding option -scope=reachable", method);
+                return;
+            }
+            cfg.forEach(stmt -> stmtToCFG.put(stmt, cfg));
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<JMethod, MethodEdges>[] newStripes(int size, int stripeSize) {
+        Map<JMethod, MethodEdges>[] stripes = (Map<JMethod, MethodEdges>[]) new Map<?, ?>[size];
+        for (int i = 0; i < size; ++i) {
+            stripes[i] = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<JMethod, MethodEdges> eldest) {
+                    return size() > stripeSize;
+                }
+            };
+        }
+        return stripes;
+    }
+
+    /**
+     * @return the edges of the method containing given node.
+     */
+    private MethodEdges getEdgesOf(Stmt stmt) {
+        JMethod method = getContainingMethodOf(stmt);
+        Map<JMethod, MethodEdges> stripe = stripes[
+                Math.floorMod(method.hashCode(), stripes.length)];
+        MethodEdges edges;
+        synchronized (stripe) {
+            edges = stripe.get(method);
+        }
+        if (edges == null) {
+            // build the edges outside the lock, as other threads may
+            // query the edges of other methods meanwhile
+            edges = new MethodEdges(method);
+            synchronized (stripe) {
+                MethodEdges prev = stripe.putIfAbsent(method, edges);
+                if (prev != null) {
+                    edges = prev;
+                }
+            }
+        }
+        return edges;
+    }
+
+    @Override
+    public Set<ICFGEdge<Stmt>> getInEdgesOf(Stmt stmt) {
+        return getEdgesOf(stmt).inEdges.get(stmt);
+    }
+
+    @Override
+    public Set<ICFGEdge<Stmt>> getOutEdgesOf(Stmt stmt) {
+        return getEdgesOf(stmt).outEdges.get(stmt);
+    }
+
+    @Override
+    public Stmt getEntryOf(JMethod method) {
+        return ICFGBuilder.getCFGOf(method).getEntry();
+    }
+
+    @Override
+    public Stmt getExitOf(JMethod method) {
+        return ICFGBuilder.getCFGOf(method).getExit();
+    }
+
+    @Override
+    public Set<Stmt> getReturnSitesOf(Stmt callSite) {
+        assert isCallSite(callSite);
+        return stmtToCFG.get(callSite).getSuccsOf(callSite);
+    }
+
+    @Override
+    public JMethod getContainingMethodOf(Stmt stmt) {
+        return stmtToCFG.get(stmt).getMethod();
+    }
+
+    @Override
+    public boolean isCallSite(Stmt stmt) {
+        return stmt instanceof Invoke;
+    }
+
+    @Override
+    public boolean hasNode(Stmt stmt) {
+        return stmtToCFG.containsKey(stmt);
+    }
+
+    @Override
+    public boolean hasEdge(Stmt source, Stmt target) {
+        return getOutEdgesOf(source)
+                .stream()
+                .anyMatch(edge -> edge.getTarget().equals(target));
+    }
+
+    @Override
+    public Set<Stmt> getPredsOf(Stmt stmt) {
+        return Views.toMappedSet(getInEdgesOf(stmt), ICFGEdge::getSource);
+    }
+
+    @Override
+    public Set<Stmt> getSuccsOf(Stmt stmt) {
+        return Views.toMappedSet(getOutEdgesOf(stmt), ICFGEdge::getTarget);
+    }
+
+    @Override
+    public Set<Stmt> getNodes() {
+        return Collections.unmodifiableSet(stmtToCFG.keySet());
+    }
+
+    /**
+     * Edges going into and out of the nodes of a method.
+     */
+    private class MethodEdges {
+
+        private final MultiMap<Stmt, ICFGEdge<Stmt>> inEdges = Maps.newMultiMap();
+
+        private final MultiMap<Stmt, ICFGEdge<Stmt>> outEdges = Maps.newMultiMap();
+
+        private MethodEdges(JMethod method) {
+            CFG<Stmt> cfg = ICFGBuilder.getCFGOf(method);
+            for (Stmt stmt : cfg) {
+                // intra-procedural edges
+                for (Edge<Stmt> edge : cfg.getOutEdgesOf(stmt)) {
+                    ICFGEdge<Stmt> local = isCallSite(stmt) ?
+                            new CallToReturnEdge<>(edge) :
+                            new NormalEdge<>(edge);
+                    outEdges.put(stmt, local);
+                    inEdges.put(edge.getTarget(), local);
+                }
+                // call edges to, and return edges from, the callees
+                if (isCallSite(stmt)) {
+                    for (JMethod callee : getCalleesOf(stmt)) {
+                        CFG<Stmt> calleeCFG = ICFGBuilder.getCFGOf(callee);
+                        if (calleeCFG == null) {
+                            logger.warn("CFG of {} is missing", callee);
+                            continue;
+                        }
+                        outEdges.put(stmt, new CallEdge<>(
+                                stmt, calleeCFG.getEntry(), callee));
+                        for (Stmt retSite : cfg.getSuccsOf(stmt)) {
+                            inEdges.put(retSite,
+                                    newReturnEdge(calleeCFG, retSite, stmt));
+                        }
+                    }
+                }
+            }
+            // call edges from, and return edges to, the callers
+            Stmt entry = cfg.getEntry();
+            Stmt exit = cfg.getExit();
+            for (Stmt callSite : getCallersOf(method)) {
+                CFG<Stmt> callerCFG = stmtToCFG.get(callSite);
+                if (callerCFG == null) {
+                    continue;
+                }
+                inEdges.put(entry, new CallEdge<>(callSite, entry, method));
+                for (Stmt retSite : callerCFG.getSuccsOf(callSite)) {
+                    outEdges.put(exit, newReturnEdge(cfg, retSite, callSite));
+                }
+            }
+        }
+
+        private ReturnEdge<Stmt> newReturnEdge(
+                CFG<Stmt> calleeCFG, Stmt retSite, Stmt callSite) {
+            Stmt exit = calleeCFG.getExit();
+            Set<Var> retVars = Sets.newHybridSet();
+            Set<ClassType> exceptions = Sets.newHybridSet();
+            for (Edge<Stmt> edge : calleeCFG.getInEdgesOf(exit)) {
+                if (edge.getKind() == Edge.Kind.RETURN) {
+                    Var retVar = ((Return) edge.getSource()).getValue();
+                    if (retVar != null) {
+                        retVars.add(retVar);
+                    }
+                }
+                if (edge.isExceptional()) {
+                    exceptions.addAll(edge.getExceptions());
+                }
+            }
+            return new ReturnEdge<>(exit, retSite, callSite, retVars, exceptions);
+        }
+    }
+}
@@ -31,8 +31,12 @@ public class InterCPTest {
     private static final String CLASS_PATH = "src/test/resources/dataflow/constprop/inter";
 
     void test(String inputClass) {
+        test(inputClass, "edge-refine:false;alias-aware:false");
+    }
+
+    void test(String inputClass, String opts) {
         Tests.test(inputClass, CLASS_PATH, InterConstantPropagation.ID,
-                "edge-refine:false;alias-aware:false", "-a", "cg=algorithm:cha"
+                opts, "-a", "cg=algorithm:cha"
                 // , "-a", "icfg=dump:true" // <-- uncomment this code if you want
                                             // to output ICFGs for the test cases
         );
@@ -57,4 +61,43 @@ public class InterCPTest {
     public void testMultiIntArgs() {
         test("MultiIntArgs");
     }
+
+    @Test
+    public void testFibonacciParallel() {
+        test("Fibonacci", "edge-refine:false;alias-aware:false;parallel:true");
+    }
+
+    @Test
+    public void testMultiIntArgsParallel() {
+        test("MultiIntArgs", "edge-refine:false;alias-aware:false;parallel:true");
+    }
+
+    @Test
+    public void testMultiIntArgsSummary() {
+        // foo() is summarized per argument vector, and is analyzed once
+        // for unknown arguments
+        test("MultiIntArgsSummary", "edge-refine:false;alias-aware:false;summary:true");
+    }
+
+    @Test
+    public void testMultiIntArgsSummaryParallel() {
+        test("MultiIntArgsSummary",
+                "edge-refine:false;alias-aware:false;summary:true;parallel:true");
+    }
+
+    @Test
+    public void testStaticFields() {
+        // only the fields whose writers are all reachable are tracked,
+        // and their loads also read the default value, which is seen
+        // by the load before the store
+        test("StaticFields", "edge-refine:false;alias-aware:false;static-field:true");
+    }
+
+    @Test
+    public void testExampleLazyICFG() {
+        // a single cached method forces edges to be rebuilt
+        Tests.test("Example", CLASS_PATH, InterConstantPropagation.ID,
+                "edge-refine:false;alias-aware:false", "-a", "cg=algorithm:cha",
+                "-a", "icfg=lazy:true;cache-size:1");
+    }
 }
@@ -0,0 +1,39 @@
+class StaticFields {
+
+    static int never;
+
+    static int once;
+
+    static int zero;
+
+    static int initialized = 3;
+
+    static int dead;
+
+    public static void main(String[] args) {
+        int e = once;
+        once = 7;
+        zero = 0;
+        int a = never;
+        int b = once;
+        int z = zero;
+        int c = initialized;
+        int d = dead;
+        int x;
+        if (a < z) {
+            x = 1;
+        } else {
+            x = 2;
+        }
+        int y;
+        if (c < d) {
+            y = 1;
+        } else {
+            y = 2;
+        }
+    }
+
+    static void kill() {
+        dead = 5;
+    }
+}